@@ -27,13 +27,18 @@ import sx.blah.discord.api.internal.json.requests.PresenceUpdateRequest;
 import sx.blah.discord.api.internal.json.responses.GatewayBotResponse;
 import sx.blah.discord.handle.obj.ActivityType;
 import sx.blah.discord.handle.obj.StatusType;
+import sx.blah.discord.util.BackoffRetryPolicy;
 import sx.blah.discord.util.DiscordException;
+import sx.blah.discord.util.IRetryPolicy;
+import sx.blah.discord.util.ISessionStore;
 import sx.blah.discord.util.cache.Cache;
 import sx.blah.discord.util.cache.ICacheDelegateProvider;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.TimeUnit;
 
@@ -42,6 +47,11 @@ import java.util.concurrent.TimeUnit;
  */
 public class ClientBuilder {
 
+	/**
+	 * The dispatch events which the client needs in order to connect and can therefore never be ignored.
+	 */
+	private static final List<String> REQUIRED_DISPATCH_TYPES = Arrays.asList("READY", "RESUMED", "GUILD_CREATE");
+
 	/**
 	 * The default amount of messages which may be cached by channels.
 	 * @see sx.blah.discord.util.MessageHistory
@@ -64,6 +74,14 @@ public class ClientBuilder {
 	private long eventThreadTimeout = 60L;
 	private TimeUnit eventThreadTimeoutUnit = TimeUnit.SECONDS;
 	private int overflowCapacity = 128;
+	private int maxHttpConnections = Requests.DEFAULT_MAX_CONNECTIONS;
+	private int maxHttpConnectionsPerRoute = Requests.DEFAULT_MAX_CONNECTIONS;
+	private long httpKeepAlive = Requests.DEFAULT_KEEP_ALIVE;
+	private IRetryPolicy retryPolicy;
+	private boolean transportCompression = true;
+	private final Set<String> ignoredDispatchTypes = new HashSet<>();
+	private int dispatchLanes = 0;
+	private ISessionStore sessionStore;
 	private StatusType status = StatusType.ONLINE;
 	private ActivityType activity;
 	private String text;
@@ -249,7 +267,8 @@ public class ClientBuilder {
 
 	/**
 	 * Configures the number of retries that should be attempted for HTTP requests to Discord in the case of a 5xx
-	 * response code.
+	 * response code. This configures the default {@link BackoffRetryPolicy} and has no effect if a policy is set with
+	 * {@link #withRetryPolicy(IRetryPolicy)}.
 	 *
 	 * @param retryCount The number of retries that should be made.
 	 * @return The builder instance.
@@ -259,6 +278,119 @@ public class ClientBuilder {
 		return this;
 	}
 
+	/**
+	 * Configures the policy which decides whether and when HTTP requests to Discord are retried in the case of a 5xx
+	 * response code. By default, a {@link BackoffRetryPolicy} with the number of retries set by
+	 * {@link #set5xxRetryCount(int)} is used.
+	 *
+	 * @param retryPolicy The retry policy.
+	 * @return The builder instance.
+	 */
+	public ClientBuilder withRetryPolicy(IRetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+		return this;
+	}
+
+	/**
+	 * Configures the maximum number of HTTP connections the client may keep open to Discord. Every request method
+	 * shares this one connection pool.
+	 *
+	 * @param maxConnections The maximum number of open connections.
+	 * @return The builder instance.
+	 */
+	public ClientBuilder withMaxHttpConnections(int maxConnections) {
+		this.maxHttpConnections = maxConnections;
+		return this;
+	}
+
+	/**
+	 * Configures the maximum number of HTTP connections the client may keep open to a single host.
+	 *
+	 * @param maxConnectionsPerRoute The maximum number of open connections to a single host.
+	 * @return The builder instance.
+	 */
+	public ClientBuilder withMaxHttpConnectionsPerRoute(int maxConnectionsPerRoute) {
+		this.maxHttpConnectionsPerRoute = maxConnectionsPerRoute;
+		return this;
+	}
+
+	/**
+	 * Configures the amount of time an idle HTTP connection is kept open so that it can be reused by later requests.
+	 *
+	 * @param time The amount of time to keep idle connections open.
+	 * @param unit The unit of time to use.
+	 * @return The builder instance.
+	 */
+	public ClientBuilder withHttpKeepAlive(long time, TimeUnit unit) {
+		this.httpKeepAlive = unit.toMillis(time);
+		return this;
+	}
+
+	/**
+	 * Configures whether the gateway connection is compressed as a whole (zlib-stream transport compression). This
+	 * greatly reduces bandwidth and allocation when receiving many or large events. It is enabled by default.
+	 *
+	 * @param transportCompression Whether the gateway connection is compressed.
+	 * @return The builder instance.
+	 */
+	public ClientBuilder withTransportCompression(boolean transportCompression) {
+		this.transportCompression = transportCompression;
+		return this;
+	}
+
+	/**
+	 * Configures dispatch events which the client drops as soon as their name is read. Their data is never
+	 * deserialized, no events are dispatched for them and the cache is not updated by them. For example, ignoring
+	 * <code>"TYPING_START"</code> and <code>"PRESENCE_UPDATE"</code> saves a lot of work on large guilds if the bot never
+	 * uses typing events or presences, but the presences returned by {@link sx.blah.discord.handle.obj.IUser#getPresence()}
+	 * will then be stale.
+	 *
+	 * @param types The names of the dispatch events to ignore, as sent by Discord (for example <code>"TYPING_START"</code>).
+	 * @return The builder instance.
+	 * @throws IllegalArgumentException If one of the events is required to connect (READY, RESUMED or GUILD_CREATE).
+	 */
+	public ClientBuilder withIgnoredDispatchTypes(String... types) {
+		for (String type : types) {
+			if (REQUIRED_DISPATCH_TYPES.contains(type))
+				throw new IllegalArgumentException(type + " is required by the client and cannot be ignored.");
+			ignoredDispatchTypes.add(type);
+		}
+		return this;
+	}
+
+	/**
+	 * Configures the client to handle gateway dispatches on a fixed number of single-threaded lanes partitioned by
+	 * guild instead of a shared pool. All dispatches of a guild are then handled one at a time and in the order they
+	 * were received (so a MESSAGE_UPDATE can never overtake its MESSAGE_CREATE), while different guilds are still
+	 * handled in parallel. Using {@link Runtime#availableProcessors()} lanes is a good default. The lanes are shared by
+	 * all shards of the client.
+	 *
+	 * @param lanes The number of dispatch lanes, or 0 to use a shared pool (the default).
+	 * @return The builder instance.
+	 */
+	public ClientBuilder withDispatchLanes(int lanes) {
+		if (lanes < 0) throw new IllegalArgumentException("The number of dispatch lanes cannot be negative.");
+		this.dispatchLanes = lanes;
+		return this;
+	}
+
+	/**
+	 * Configures a store the gateway sessions of the client's shards are persisted in. Shards then try to resume their
+	 * stored session when logging in instead of identifying again, and logging out leaves the sessions resumable.
+	 *
+	 * <p>A resumed session only receives the events missed while the bot was offline, not every guild, so this should
+	 * only be used with a cache which survives restarts (see {@link #setCacheProvider(ICacheDelegateProvider)}).
+	 *
+	 * @param sessionStore The store to persist sessions in, or null to not persist them (the default).
+	 * @return The builder instance.
+	 *
+	 * @see sx.blah.discord.util.FileSessionStore
+	 */
+	public ClientBuilder withSessionStore(ISessionStore sessionStore) {
+		this.sessionStore = sessionStore;
+		return this;
+	}
+
 	/**
 	 * Configures a <b>single</b> shard for this client to manage.
 	 *
@@ -416,7 +548,10 @@ public class ClientBuilder {
 		final IDiscordClient client = new DiscordClientImpl(botToken, shard != null ? -1 : shardCount, isDaemon,
 				maxMissedPings, maxReconnectAttempts, retryCount, maxCacheCount, provider, shard, backpressureHandler,
 				minimumPoolSize, maximumPoolSize, overflowCapacity, eventThreadTimeout, eventThreadTimeoutUnit,
-				new PresenceUpdateRequest(status, activity, text, streamUrl));
+				new PresenceUpdateRequest(status, activity, text, streamUrl), maxHttpConnections,
+				maxHttpConnectionsPerRoute, httpKeepAlive,
+				retryPolicy == null ? new BackoffRetryPolicy(retryCount) : retryPolicy, transportCompression,
+				ignoredDispatchTypes, dispatchLanes, sessionStore);
 
 		//Registers events as soon as client is initialized
 		final EventDispatcher dispatcher = client.getDispatcher();
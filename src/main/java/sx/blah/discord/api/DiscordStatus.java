@@ -23,7 +23,6 @@ import sx.blah.discord.api.internal.Requests;
 import sx.blah.discord.api.internal.json.responses.metrics.MetricsResponse;
 import sx.blah.discord.api.internal.json.responses.metrics.StatusResponse;
 import sx.blah.discord.util.DiscordException;
-import sx.blah.discord.util.RateLimitException;
 
 import java.time.Instant;
 
@@ -73,7 +72,6 @@ public class DiscordStatus {
 	 *
 	 * @return The maintenance statuses.
 	 *
-	 * @throws RateLimitException
 	 * @throws DiscordException
 	 */
 	public static Maintenance[] getActiveMaintenances() {
@@ -95,7 +93,6 @@ public class DiscordStatus {
 	 *
 	 * @return The maintenance statuses.
 	 *
-	 * @throws RateLimitException
 	 * @throws DiscordException
 	 */
 	public static Maintenance[] getUpcomingMaintenances() {
@@ -100,6 +100,13 @@ public interface IShard {
 	 */
 	long getResponseTime();
 
+	/**
+	 * Gets the health metrics of the shard's gateway connection.
+	 *
+	 * @return The metrics of the shard.
+	 */
+	IShardMetrics getMetrics();
+
 	/**
 	 * Changes the presence of the bot.
 	 *
@@ -0,0 +1,84 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api;
+
+import sx.blah.discord.util.Histogram;
+import sx.blah.discord.util.Meter;
+
+import java.util.Map;
+
+/**
+ * Health metrics of a shard's gateway connection. The metrics are kept for the whole lifetime of the shard, across
+ * reconnects.
+ *
+ * @see IShard#getMetrics()
+ */
+public interface IShardMetrics {
+
+	/**
+	 * Gets the time it took Discord to acknowledge heartbeats, in milliseconds. A growing latency is usually the first
+	 * sign of an overloaded shard.
+	 *
+	 * @return The heartbeat round trip times in milliseconds.
+	 */
+	Histogram getHeartbeatLatency();
+
+	/**
+	 * Gets the number of dispatches which were received but not handled yet.
+	 *
+	 * @return The number of pending dispatches.
+	 */
+	int getPendingDispatches();
+
+	/**
+	 * Gets the number and rate of received dispatches for every event name, for example <code>"MESSAGE_CREATE"</code>.
+	 *
+	 * @return The received dispatches keyed by event name.
+	 */
+	Map<String, Meter> getDispatches();
+
+	/**
+	 * Gets the number and rate of payload bytes received on the gateway, as they arrived: compressed for binary
+	 * messages and UTF-8 encoded for text messages. Websocket framing and TLS overhead are not included.
+	 *
+	 * @return The received payload bytes.
+	 */
+	Meter getPayloadBytesReceived();
+
+	/**
+	 * Gets the number and rate of UTF-8 encoded payload bytes sent on the gateway. Websocket framing and TLS overhead
+	 * are not included.
+	 *
+	 * @return The sent payload bytes.
+	 */
+	Meter getPayloadBytesSent();
+
+	/**
+	 * Gets the time it took to decompress received payloads, in microseconds. Only recorded for connections using
+	 * transport compression.
+	 *
+	 * @return The decompression times in microseconds.
+	 */
+	Histogram getInflateTime();
+
+	/**
+	 * Gets the time it took to parse received payloads, in microseconds.
+	 *
+	 * @return The parse times in microseconds.
+	 */
+	Histogram getParseTime();
+}
@@ -21,6 +21,7 @@ import sx.blah.discord.Discord4J;
 import sx.blah.discord.api.IDiscordClient;
 import sx.blah.discord.api.IShard;
 import sx.blah.discord.api.events.EventDispatcher;
+import sx.blah.discord.api.events.IListener;
 import sx.blah.discord.api.internal.json.objects.InviteObject;
 import sx.blah.discord.api.internal.json.objects.UserObject;
 import sx.blah.discord.api.internal.json.objects.VoiceRegionObject;
@@ -28,7 +29,7 @@ import sx.blah.discord.api.internal.json.requests.AccountInfoChangeRequest;
 import sx.blah.discord.api.internal.json.requests.PresenceUpdateRequest;
 import sx.blah.discord.api.internal.json.requests.voice.VoiceStateUpdateRequest;
 import sx.blah.discord.api.internal.json.responses.ApplicationInfoResponse;
-import sx.blah.discord.api.internal.json.responses.GatewayResponse;
+import sx.blah.discord.api.internal.json.responses.GatewayBotResponse;
 import sx.blah.discord.handle.impl.events.ReadyEvent;
 import sx.blah.discord.handle.impl.events.shard.ShardReadyEvent;
 import sx.blah.discord.handle.impl.obj.Guild;
@@ -42,6 +43,7 @@ import sx.blah.discord.util.cache.ICacheDelegateProvider;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.TimeUnit;
@@ -92,6 +94,31 @@ public final class DiscordClientImpl implements IDiscordClient {
 	 */
 	final int maxMissedPings;
 
+	/**
+	 * Whether gateway connections use zlib-stream transport compression.
+	 */
+	final boolean transportCompression;
+
+	/**
+	 * The names of the dispatch events which are dropped without their data being read.
+	 */
+	final Set<String> ignoredDispatchTypes;
+
+	/**
+	 * The lanes gateway dispatches are partitioned onto by guild, or null if they are handled on a shared pool.
+	 */
+	final DispatchLanes dispatchLanes;
+
+	/**
+	 * Schedules the IDENTIFYs of the client's shards.
+	 */
+	final IdentifyLimiter identifyLimiter = new IdentifyLimiter();
+
+	/**
+	 * The store the gateway sessions of the shards are persisted in, or null if they aren't persisted.
+	 */
+	final ISessionStore sessionStore;
+
 	/**
 	 * Whether the websocket should act as a daemon.
 	 */
@@ -115,7 +142,7 @@ public final class DiscordClientImpl implements IDiscordClient {
 	/**
 	 * The requests holder object.
 	 */
-	public final Requests REQUESTS = new Requests(this);
+	public final Requests REQUESTS;
 
 	/**
 	 * Timer to keep the program alive if the client is not daemon
@@ -146,10 +173,18 @@ public final class DiscordClientImpl implements IDiscordClient {
 							 int retryCount, int maxCacheCount, ICacheDelegateProvider provider, int[] shard,
 							 RejectedExecutionHandler backpressureHandler, int minimumPoolSize, int maximumPoolSize,
 							 int overflowCapacity, long eventThreadTimeout, TimeUnit eventThreadTimeoutUnit,
-							 PresenceUpdateRequest identifyPresence) {
+							 PresenceUpdateRequest identifyPresence, int maxHttpConnections, int maxHttpConnectionsPerRoute,
+							 long httpKeepAlive, IRetryPolicy retryPolicy, boolean transportCompression,
+							 Set<String> ignoredDispatchTypes, int dispatchLanes,
+							 ISessionStore sessionStore) {
 		this.token = "Bot " + token;
+		this.REQUESTS = new Requests(this, maxHttpConnections, maxHttpConnectionsPerRoute, httpKeepAlive, retryPolicy);
 		this.retryCount = retryCount;
 		this.maxMissedPings = maxMissedPings;
+		this.transportCompression = transportCompression;
+		this.ignoredDispatchTypes = Collections.unmodifiableSet(new HashSet<>(ignoredDispatchTypes));
+		this.dispatchLanes = dispatchLanes > 0 ? new DispatchLanes("Dispatch Lane", dispatchLanes) : null;
+		this.sessionStore = sessionStore;
 		this.isDaemon = isDaemon;
 		this.shardCount = shardCount == -1 ? 1 : shardCount;
 		this.maxCacheCount = maxCacheCount;
@@ -375,8 +410,12 @@ public final class DiscordClientImpl implements IDiscordClient {
 	private String obtainGateway() {
 		String gateway = null;
 		try {
-			GatewayResponse response = REQUESTS.GET.makeRequest(DiscordEndpoints.GATEWAY, GatewayResponse.class);
+			GatewayBotResponse response = REQUESTS.GET.makeRequest(DiscordEndpoints.GATEWAY + "/bot", GatewayBotResponse.class);
 			gateway = response.url + "?encoding=json&v=" + DiscordUtils.API_VERSION;
+			if (response.session_start_limit != null)
+				identifyLimiter.setMaxConcurrency(response.session_start_limit.max_concurrency);
+			if (transportCompression)
+				gateway += "&compress=zlib-stream";
 		} catch (RateLimitException | DiscordException e) {
 			Discord4J.LOGGER.error(LogMarkers.API, "Discord4J Internal Exception", e);
 		}
@@ -400,26 +439,32 @@ public final class DiscordClientImpl implements IDiscordClient {
 
 		String gateway = obtainGateway();
 		new RequestBuilder(this).setAsync(true).doAction(() -> {
-			if (shard != null) {
-				ShardImpl shardObj = new ShardImpl(this, gateway, new int[]{shard[0], shard[1]}, identifyPresence);
-				getShards().add(shardObj);
-				shardObj.login();
-
-				getDispatcher().waitFor(ShardReadyEvent.class);
-			} else {
-				for (int i = 0; i < shardCount; i++) {
-					final int shardNum = i;
-					ShardImpl shard = new ShardImpl(this, gateway, new int[]{shardNum, shardCount}, identifyPresence);
-					getShards().add(shardNum, shard);
-					shard.login();
-
-					getDispatcher().waitFor(ShardReadyEvent.class);
-
-					if (i != shardCount - 1) { // all but last
-						Discord4J.LOGGER.trace(LogMarkers.API, "Sleeping for login ratelimit.");
-						Thread.sleep(5000);
+			int total = shard != null ? 1 : shardCount;
+			// Shards connect at once and their IDENTIFYs are spaced out by the identify limiter,
+			// so a shard doesn't have to wait for the previous one to receive all of its guilds.
+			Set<Integer> readyShards = ConcurrentHashMap.newKeySet();
+			CountDownLatch allReady = new CountDownLatch(total);
+			IListener<ShardReadyEvent> readyListener = event -> {
+				if (readyShards.add(event.getShard().getInfo()[0])) allReady.countDown();
+			};
+			getDispatcher().registerListener(readyListener);
+
+			try {
+				if (shard != null) {
+					ShardImpl shardObj = new ShardImpl(this, gateway, new int[]{shard[0], shard[1]}, identifyPresence);
+					getShards().add(shardObj);
+					shardObj.login();
+				} else {
+					for (int i = 0; i < shardCount; i++) {
+						ShardImpl shard = new ShardImpl(this, gateway, new int[]{i, shardCount}, identifyPresence);
+						getShards().add(i, shard);
+						shard.login();
 					}
 				}
+
+				allReady.await();
+			} finally {
+				getDispatcher().unregisterListener(readyListener);
 			}
 			getDispatcher().dispatch(new ReadyEvent());
 			return true;
@@ -472,7 +517,7 @@ public final class DiscordClientImpl implements IDiscordClient {
 
 	@Override
 	public void mute(IGuild guild, boolean isSelfMuted) {
-		VoiceState voiceState = (VoiceState) ourUser.getVoiceStateForGuild(guild);
+		VoiceState voiceState = ourUser.getOrCreateVoiceState(guild);
 
 		String channelID = null;
 		long connectingID = ((Guild) guild).connectingVoiceChannelID;
@@ -490,7 +535,7 @@ public final class DiscordClientImpl implements IDiscordClient {
 
 	@Override
 	public void deafen(IGuild guild, boolean isSelfDeafened) {
-		VoiceState voiceState = (VoiceState) ourUser.getVoiceStateForGuild(guild);
+		VoiceState voiceState = ourUser.getOrCreateVoiceState(guild);
 
 		String channelID = null;
 		long connectingID = ((Guild) guild).connectingVoiceChannelID;
@@ -562,7 +607,7 @@ public final class DiscordClientImpl implements IDiscordClient {
 
 	@Override
 	public List<IVoiceChannel> getConnectedVoiceChannels() {
-		return ((User) getOurUser()).voiceStates.values().stream().map(IVoiceState::getChannel).filter(Objects::nonNull).collect(Collectors.toList());
+		return ((User) getOurUser()).getVoiceStateCache().values().stream().map(IVoiceState::getChannel).filter(Objects::nonNull).collect(Collectors.toList());
 	}
 
 	@Override
@@ -47,6 +47,7 @@ import sx.blah.discord.util.LongMapCollector;
 import sx.blah.discord.util.RequestBuilder;
 import sx.blah.discord.util.cache.Cache;
 import sx.blah.discord.util.cache.LongMap;
+import sx.blah.discord.util.cache.SnowflakeIndex;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -61,8 +62,10 @@ import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongFunction;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 
 /**
  * Collection of internal Discord4J utilities.
@@ -308,15 +311,7 @@ public class DiscordUtils {
 				newRoles.add(getRoleFromJSON(guild, roleResponse));
 			}
 			guild.roles.clear();
-			guild.roles.putAll(newRoles);
-
-			for (IUser user : guild.getUsers()) { //Removes all deprecated roles
-				for (IRole role : user.getRolesForGuild(guild)) {
-					if (guild.getRoleByID(role.getLongID()) == null) {
-						user.getRolesForGuild(guild).remove(role);
-					}
-				}
-			}
+			guild.roles.putAll(newRoles); //Members only store role IDs, so deleted roles disappear from them here
 		} else {
 			guild = new Guild(shard, json.name, guildId, json.icon, Long.parseUnsignedLong(json.owner_id),
 					json.afk_channel_id == null ? 0 : Long.parseUnsignedLong(json.afk_channel_id), json.afk_timeout,
@@ -365,7 +360,7 @@ public class DiscordUtils {
 						}).execute();
 					}
 					if (user.get()!= null)
-						((User) user.get()).voiceStates.put(DiscordUtils.getVoiceStateFromJson(guild, voiceState));
+						((User) user.get()).getVoiceStateCache().put(DiscordUtils.getVoiceStateFromJson(guild, voiceState));
 				}
 			}
 		}
@@ -380,31 +375,66 @@ public class DiscordUtils {
 	}
 
 	/**
-	 * Converts a json {@link MemberObject} to a {@link IUser}. This method uses {@link #getUserFromJSON(IShard, UserObject)}
-	 * to get or create a {@link IUser} and then updates the guild's appropriate member caches for that user.
+	 * Converts a json {@link MemberObject} to a {@link IUser}. This method gets or creates the shard's {@link IUser}
+	 * for the member and then updates the guild's appropriate member caches for that user.
+	 *
+	 * <p>Guilds which share members can be built concurrently, so the user is created through
+	 * {@link SnowflakeIndex#intern(long, Class, LongFunction)} to make sure every guild gets the same instance. The
+	 * caller must put the returned user into the guild's user cache.
 	 *
 	 * @param guild The guild the member belongs to.
 	 * @param json The json object representing the member.
 	 * @return The converted user object.
 	 */
 	public static IUser getUserFromGuildMemberResponse(IGuild guild, MemberObject json) {
-		User user = getUserFromJSON(guild.getShard(), json.user);
-		for (String role : json.roles) {
-			Role roleObj = (Role) guild.getRoleByID(Long.parseUnsignedLong(role));
-			if (roleObj != null && !user.getRolesForGuild(guild).contains(roleObj))
-				user.addRole(guild.getLongID(), roleObj);
-		}
-		user.addRole(guild.getLongID(), guild.getRoleByID(guild.getLongID())); //@everyone role
-		user.addNick(guild.getLongID(), json.nick);
+		User user = getMemberUserFromJSON((ShardImpl) guild.getShard(), json.user);
 
 		VoiceState voiceState = (VoiceState) user.getVoiceStateForGuild(guild);
-		voiceState.setDeafened(json.deaf);
-		voiceState.setMuted(json.mute);
+		if (voiceState.isDeafened() != json.deaf || voiceState.isMuted() != json.mute) {
+			voiceState.setDeafened(json.deaf);
+			voiceState.setMuted(json.mute);
+			user.getVoiceStateCache().put(voiceState);
+		}
 
-		((Guild) guild).joinTimes.put(new Guild.TimeStampHolder(user.getLongID(), convertFromTimestamp(json.joined_at)));
+		((Guild) guild).putMember(user, new Guild.Member(user.getLongID(), getRoleIDsFromJSON(guild, json.roles), json.nick,
+				convertFromTimestamp(json.joined_at)));
+		return user;
+	}
+
+	/**
+	 * Gets the shard's user for a guild member, atomically creating it if the shard does not have one yet.
+	 *
+	 * @param shard The shard the member belongs to.
+	 * @param response The json object representing the user.
+	 * @return The user object.
+	 */
+	private static User getMemberUserFromJSON(ShardImpl shard, UserObject response) {
+		long id = Long.parseUnsignedLong(response.id);
+		IUser ourUser = shard.getClient().getOurUser();
+		User user = ourUser != null && ourUser.getLongID() == id ? (User) ourUser
+				: (User) shard.index.intern(id, IUser.class, key -> new User(shard, response.username, key,
+						response.discriminator, response.avatar, new Presence(null, null, StatusType.OFFLINE, ActivityType.PLAYING), response.bot));
+		user.setAvatar(response.avatar);
+		user.setName(response.username);
+		user.setDiscriminator(response.discriminator);
 		return user;
 	}
 
+	/**
+	 * Converts the role IDs of a member to the sorted IDs of the roles they have in a guild. Roles which are not
+	 * cached are left out and the @everyone role is added.
+	 *
+	 * @param guild The guild the member is in.
+	 * @param roles The role IDs sent by Discord.
+	 * @return The IDs of the roles the member has.
+	 */
+	public static long[] getRoleIDsFromJSON(IGuild guild, String[] roles) {
+		return LongStream.concat(
+				Arrays.stream(roles).mapToLong(Long::parseUnsignedLong).filter(id -> guild.getRoleByID(id) != null),
+				LongStream.of(guild.getLongID())
+		).sorted().distinct().toArray();
+	}
+
 	/**
 	 * Converts a json {@link MessageObject} to a {@link IMessage}. This method first checks the internal message cache
 	 * and returns that object with updated information if it exists. Otherwise, it constructs a new message.
@@ -429,33 +459,106 @@ public class DiscordUtils {
 					json.edited_timestamp == null ? null : convertFromTimestamp(json.edited_timestamp));
 			message.setPinned(Boolean.TRUE.equals(json.pinned));
 			message.setChannelMentions();
+			channel.messages.put(message); //The cache may store a copy of the message
 
 			return message;
 		} else {
 			long authorId = Long.parseUnsignedLong(json.author.id);
 			IGuild guild = channel.isPrivate() ? null : channel.getGuild();
-			IUser author = guild == null ? getUserFromJSON(channel.getShard(), json.author) : guild
-					.getUsers()
-					.stream()
-					.filter(it -> it.getLongID() == authorId)
-					.findAny()
-					.orElseGet(() -> getUserFromJSON(channel.getShard(), json.author));
+			IUser author = guild == null ? null : guild.getUserByID(authorId);
+			if (author == null) author = getUserFromJSON(channel.getShard(), json.author);
 
-			IMessage.Type type = Arrays.stream(IMessage.Type.values())
-					.filter(t -> t.getValue() == json.type)
-					.findFirst()
-					.orElse(IMessage.Type.UNKNOWN);
+			return getMessageFromJSON(channel, author, json);
+		}
+	}
 
-			Message message = new Message(channel.getClient(), Long.parseUnsignedLong(json.id), json.content,
-					author, channel, convertFromTimestamp(json.timestamp),
-					json.edited_timestamp == null ? null : convertFromTimestamp(json.edited_timestamp),
-					json.mention_everyone, getMentionsFromJSON(json), getRoleMentionsFromJSON(json),
-					getAttachmentsFromJSON(json), Boolean.TRUE.equals(json.pinned), getEmbedsFromJSON(json),
-					json.webhook_id != null ? Long.parseUnsignedLong(json.webhook_id) : 0, type);
-			message.setReactions(getReactionsFromJSON(message, json.reactions));
+	/**
+	 * Constructs a new {@link IMessage} from a json {@link MessageObject} without checking the internal message cache.
+	 *
+	 * @param channel The channel the message belongs to.
+	 * @param author The author of the message.
+	 * @param json The json object representing the message.
+	 * @return The converted message object.
+	 */
+	public static Message getMessageFromJSON(Channel channel, IUser author, MessageObject json) {
+		IMessage.Type type = Arrays.stream(IMessage.Type.values())
+				.filter(t -> t.getValue() == json.type)
+				.findFirst()
+				.orElse(IMessage.Type.UNKNOWN);
+
+		Message message = new Message(channel.getClient(), Long.parseUnsignedLong(json.id), json.content,
+				author, channel, convertFromTimestamp(json.timestamp),
+				json.edited_timestamp == null ? null : convertFromTimestamp(json.edited_timestamp),
+				json.mention_everyone, getMentionsFromJSON(json), getRoleMentionsFromJSON(json),
+				getAttachmentsFromJSON(json), Boolean.TRUE.equals(json.pinned), getEmbedsFromJSON(json),
+				json.webhook_id != null ? Long.parseUnsignedLong(json.webhook_id) : 0, type);
+		message.setReactions(getReactionsFromJSON(message, json.reactions));
 
-			return message;
-		}
+		return message;
+	}
+
+	/**
+	 * Converts a {@link IMessage} to a json {@link MessageObject} which can be converted back with
+	 * {@link #getMessageFromJSON(Channel, IUser, MessageObject)}. Mentioned users are stored by ID only.
+	 *
+	 * @param message The message to convert.
+	 * @return The converted json object.
+	 */
+	public static MessageObject getJSONFromMessage(IMessage message) {
+		MessageObject json = new MessageObject();
+		json.id = message.getStringID();
+		json.type = message.getType().getValue();
+		json.channel_id = message.getChannel().getStringID();
+		json.author = getJSONFromUser(message.getAuthor());
+		json.content = message.getContent();
+		json.timestamp = message.getTimestamp().toString();
+		json.edited_timestamp = message.getEditedTimestamp().map(Instant::toString).orElse(null);
+		json.mention_everyone = message.mentionsEveryone();
+		json.mentions = ((Message) message).getRawMentionsLong().stream().map(id -> {
+			UserObject object = new UserObject();
+			object.id = Long.toUnsignedString(id);
+			return object;
+		}).toArray(UserObject[]::new);
+		json.mention_roles = ((Message) message).getRawRoleMentionsLong().stream()
+				.map(Long::toUnsignedString)
+				.toArray(String[]::new);
+		json.attachments = message.getAttachments().stream().map(attachment -> {
+			MessageObject.AttachmentObject object = new MessageObject.AttachmentObject();
+			object.id = attachment.getStringID();
+			object.filename = attachment.getFilename();
+			object.size = attachment.getFilesize();
+			object.url = attachment.getUrl();
+			return object;
+		}).toArray(MessageObject.AttachmentObject[]::new);
+		json.embeds = message.getEmbeds().stream().map(EmbedObject::new).toArray(EmbedObject[]::new);
+		json.pinned = message.isPinned();
+		json.reactions = message.getReactions().stream().map(reaction -> {
+			MessageObject.ReactionObject object = new MessageObject.ReactionObject();
+			object.count = reaction.getCount();
+			object.emoji = new ReactionEmojiObject();
+			object.emoji.name = reaction.getEmoji().getName();
+			object.emoji.id = reaction.getEmoji().isUnicode() ? null : reaction.getEmoji().getStringID();
+			object.emoji.animated = reaction.getEmoji().isAnimated();
+			return object;
+		}).toArray(MessageObject.ReactionObject[]::new);
+		json.webhook_id = message.getWebhookLongID() == 0 ? null : Long.toUnsignedString(message.getWebhookLongID());
+		return json;
+	}
+
+	/**
+	 * Converts a {@link IUser} to a json {@link UserObject}.
+	 *
+	 * @param user The user to convert.
+	 * @return The converted json object.
+	 */
+	public static UserObject getJSONFromUser(IUser user) {
+		UserObject json = new UserObject();
+		json.id = user.getStringID();
+		json.username = user.getName();
+		json.discriminator = user.getDiscriminator();
+		json.avatar = user.getAvatar();
+		json.bot = user.isBot();
+		return json;
 	}
 
 	/**
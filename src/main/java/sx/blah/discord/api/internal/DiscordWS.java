@@ -17,6 +17,7 @@
 
 package sx.blah.discord.api.internal;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import org.eclipse.jetty.util.ssl.SslContextFactory;
@@ -33,18 +34,21 @@ import sx.blah.discord.api.internal.json.requests.PresenceUpdateRequest;
 import sx.blah.discord.api.internal.json.requests.ResumeRequest;
 import sx.blah.discord.api.internal.json.responses.ReadyResponse;
 import sx.blah.discord.handle.impl.events.shard.DisconnectedEvent;
+import sx.blah.discord.handle.impl.obj.Guild;
+import sx.blah.discord.util.ISessionStore;
 import sx.blah.discord.util.LogMarkers;
 
-import java.io.BufferedReader;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.UnknownHostException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.UnresolvedAddressException;
+import java.nio.charset.StandardCharsets;
 import java.util.concurrent.CompletableFuture;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
 import java.util.zip.InflaterInputStream;
 
 /**
@@ -87,6 +91,15 @@ public class DiscordWS extends WebSocketAdapter {
 	 * The ID of the current gateway session. Used for resuming.
 	 */
 	String sessionId;
+	/**
+	 * Whether the connection is resuming a session restored from the {@link DiscordClientImpl#sessionStore}.
+	 */
+	volatile boolean resumingStoredSession = false;
+
+	/**
+	 * The listener of the current websocket connection. Events of any previous connection are ignored.
+	 */
+	private volatile Connection connection;
 
 	/**
 	 * The handler for OP 0 event dispatches from Discord.
@@ -96,6 +109,10 @@ public class DiscordWS extends WebSocketAdapter {
 	 * The handler for heartbeat information.
 	 */
 	HeartbeatHandler heartbeatHandler;
+	/**
+	 * The queue which keeps messages sent on the gateway within the rate limit.
+	 */
+	private final GatewaySendQueue sendQueue = new GatewaySendQueue(this::sendNow);
 
 	/**
 	 * The presence object that should be sent to Discord when identifying.
@@ -105,12 +122,12 @@ public class DiscordWS extends WebSocketAdapter {
 	/**
 	 * Indicates whether the bot has received all available guilds.
 	 */
-	public boolean isReady = false;
+	public volatile boolean isReady = false;
 
 	/**
 	 * Indicates whether the bot has received the initial Ready payload from Discord.
 	 */
-	public boolean hasReceivedReady = false;
+	public volatile boolean hasReceivedReady = false;
 
 	DiscordWS(IShard shard, String gateway, int maxMissedPings, PresenceUpdateRequest identifyPresence) {
 		this.client = (DiscordClientImpl) shard.getClient();
@@ -124,65 +141,94 @@ public class DiscordWS extends WebSocketAdapter {
 
 	@Override
 	public void onWebSocketText(String message) {
+		shard.metrics.getPayloadBytesReceived().mark(utf8Length(message));
 		try {
 			if (Discord4J.LOGGER.isTraceEnabled(LogMarkers.WEBSOCKET_TRAFFIC)) {
 				Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET_TRAFFIC, "Received: " + message);
 			}
 
-			JsonNode json = DiscordUtils.MAPPER.readTree(message);
-			GatewayOps op = GatewayOps.get(json.get("op").asInt());
-			JsonNode d = json.has("d") && !json.get("d").isNull() ? json.get("d") : null;
+			onPayload(parse(DiscordUtils.MAPPER.getFactory().createParser(message)));
+		} catch (IOException e) {
+			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "JSON Parsing exception!", e);
+		}
+	}
 
-			if (json.has("s") && !json.get("s").isNull()) seq = json.get("s").longValue();
+	/**
+	 * Handles a payload received from the gateway.
+	 *
+	 * @param payload The payload.
+	 */
+	private void onPayload(GatewayPayload payload) {
+		GatewayOps op = payload.op == null ? GatewayOps.UNKNOWN : GatewayOps.get(payload.op);
+		JsonNode d = payload.d instanceof JsonNode ? (JsonNode) payload.d : null; // DISPATCH data is already bound
 
-			switch (op) {
-				case HELLO:
-					Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET, "Shard {} _trace: {}", shard.getInfo()[0], d.get("_trace").toString());
+		if (payload.s != null) seq = payload.s;
 
-					heartbeatHandler.begin(d.get("heartbeat_interval").intValue());
-					if (this.state != State.RESUMING) {
-						send(GatewayOps.IDENTIFY, new IdentifyRequest(client.getToken(), shard.getInfo(), identifyPresence));
-					} else {
-						client.reconnectManager.onReconnectSuccess();
-						send(GatewayOps.RESUME, new ResumeRequest(client.getToken(), sessionId, seq));
-					}
-					break;
-				case RECONNECT:
-					this.state = State.RESUMING;
-					client.getDispatcher().dispatch(new DisconnectedEvent(DisconnectedEvent.Reason.RECONNECT_OP, shard));
-					heartbeatHandler.shutdown();
+		switch (op) {
+			case HELLO:
+				Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET, "Shard {} _trace: {}", shard.getInfo()[0], d.get("_trace").toString());
+
+				heartbeatHandler.begin(d.get("heartbeat_interval").intValue());
+				client.reconnectManager.onReconnectSuccess(this);
+				if (this.state != State.RESUMING) {
+					identify(identifyPresence);
+				} else { // Resuming isn't limited like identifying
 					send(GatewayOps.RESUME, new ResumeRequest(client.getToken(), sessionId, seq));
+				}
+				break;
+			case RECONNECT:
+				this.state = State.RESUMING;
+				client.getDispatcher().dispatch(new DisconnectedEvent(DisconnectedEvent.Reason.RECONNECT_OP, shard));
+				heartbeatHandler.shutdown();
+				send(GatewayOps.RESUME, new ResumeRequest(client.getToken(), sessionId, seq));
+				break;
+			case DISPATCH:
+				shard.metrics.onDispatchReceived(payload.t);
+				if (client.ignoredDispatchTypes.contains(payload.t)) {
+					shard.metrics.onDispatchHandled();
 					break;
-				case DISPATCH:
-					try {
-						dispatchHandler.handle(json);
-					} catch (Exception e) {
-						Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Discord4J Internal Exception", e);
-					}
-					break;
-				case INVALID_SESSION:
-					this.state = State.RECONNECTING;
-					client.getDispatcher().dispatch(new DisconnectedEvent(DisconnectedEvent.Reason.INVALID_SESSION_OP, shard));
-					invalidate();
-					send(GatewayOps.IDENTIFY, new IdentifyRequest(client.getToken(), shard.getInfo(), null)); // TODO: try to maintain previous presence?
-					break;
-				case HEARTBEAT:
-					send(GatewayOps.HEARTBEAT, seq);
-				case HEARTBEAT_ACK:
-					heartbeatHandler.ack();
-					break;
-				case UNKNOWN:
-					Discord4J.LOGGER.debug(LogMarkers.WEBSOCKET, "Received unknown opcode, {}", message);
-					break;
-			}
-		} catch (IOException e) {
-			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "JSON Parsing exception!", e);
+				}
+				try {
+					dispatchHandler.handle(payload.t, payload.d);
+				} catch (Exception e) {
+					Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Discord4J Internal Exception", e);
+				}
+				break;
+			case INVALID_SESSION:
+				this.state = State.RECONNECTING;
+				client.getDispatcher().dispatch(new DisconnectedEvent(DisconnectedEvent.Reason.INVALID_SESSION_OP, shard));
+				invalidate();
+				identify(resumingStoredSession ? identifyPresence : null); // TODO: try to maintain previous presence?
+				resumingStoredSession = false;
+				break;
+			case HEARTBEAT:
+				send(GatewayOps.HEARTBEAT, seq);
+			case HEARTBEAT_ACK:
+				heartbeatHandler.ack();
+				break;
+			case UNKNOWN:
+				Discord4J.LOGGER.debug(LogMarkers.WEBSOCKET, "Received unknown opcode, {}", payload.op);
+				break;
 		}
 	}
 
+	/**
+	 * Sends an IDENTIFY on the current connection as soon as the {@link IdentifyLimiter} allows it.
+	 *
+	 * @param presence The presence to identify with.
+	 */
+	private void identify(PresenceUpdateRequest presence) {
+		Session session = getSession();
+		client.identifyLimiter.schedule(shard.getInfo()[0], () -> {
+			if (getSession() != session || !session.isOpen()) return; // The connection was replaced in the meantime
+			send(GatewayOps.IDENTIFY, new IdentifyRequest(client.getToken(), shard.getInfo(), presence, !client.transportCompression));
+		});
+	}
+
 	@Override
 	public void onWebSocketConnect(Session sess) {
 		Discord4J.LOGGER.info(LogMarkers.WEBSOCKET, "Websocket Connected.");
+		sendQueue.reset();
 		super.onWebSocketConnect(sess);
 	}
 
@@ -219,19 +265,67 @@ public class DiscordWS extends WebSocketAdapter {
 			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Encountered websocket error: ", cause);
 		}
 
-		if (this.state == State.RESUMING) {
-			client.reconnectManager.onReconnectError();
+		if (this.state == State.RESUMING || this.state == State.RECONNECTING) {
+			client.reconnectManager.onReconnectError(this);
 		}
 	}
 
 	@Override
 	public void onWebSocketBinary(byte[] payload, int offset, int len) {
-		BufferedReader reader = new BufferedReader(new InputStreamReader(new InflaterInputStream(new ByteArrayInputStream(payload, offset, len))));
-		onWebSocketText(reader.lines().collect(Collectors.joining()));
+		Connection connection = this.connection;
+		if (connection != null) onWebSocketBinary(connection, payload, offset, len);
+	}
+
+	/**
+	 * Handles a binary message received on a connection.
+	 *
+	 * @param connection The connection the message was received on.
+	 * @param payload The buffer containing the message.
+	 * @param offset The offset of the message in the buffer.
+	 * @param len The length of the message.
+	 */
+	private void onWebSocketBinary(Connection connection, byte[] payload, int offset, int len) {
+		shard.metrics.getPayloadBytesReceived().mark(len); // The compressed size
+		ZlibStreamInflater inflater = connection.inflater;
 		try {
-			reader.close();
+			GatewayPayload gatewayPayload;
+			if (inflater != null) {
+				long start = System.nanoTime();
+				int length = inflater.inflate(payload, offset, len);
+				shard.metrics.getInflateTime().record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+				if (length == -1) return; // The rest of the payload is in the next message
+
+				if (Discord4J.LOGGER.isTraceEnabled(LogMarkers.WEBSOCKET_TRAFFIC)) {
+					Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET_TRAFFIC, "Received: " + new String(inflater.getOutput(), 0, length, StandardCharsets.UTF_8));
+				}
+				gatewayPayload = parse(DiscordUtils.MAPPER.getFactory().createParser(inflater.getOutput(), 0, length));
+			} else { // A payload compressed on its own (compress in IDENTIFY)
+				try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(payload, offset, len))) {
+					gatewayPayload = parse(DiscordUtils.MAPPER.getFactory().createParser(in));
+				}
+			}
+			onPayload(gatewayPayload);
+		} catch (DataFormatException e) {
+			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Received invalid compressed data, reconnecting.", e);
+			connection.getSession().close(4000, "Invalid compressed data");
 		} catch (IOException e) {
-			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Encountered websocket error: ", e);
+			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "JSON Parsing exception!", e);
+		}
+	}
+
+	/**
+	 * Reads a payload received from the gateway and records how long it took.
+	 *
+	 * @param parser The parser to read the payload from.
+	 * @return The payload.
+	 * @throws IOException If the payload could not be read.
+	 */
+	private GatewayPayload parse(JsonParser parser) throws IOException {
+		long start = System.nanoTime();
+		try {
+			return GatewayPayloadReader.read(parser, client.ignoredDispatchTypes);
+		} finally {
+			shard.metrics.getParseTime().record(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
 		}
 	}
 
@@ -246,7 +340,8 @@ public class DiscordWS extends WebSocketAdapter {
 			wsClient.getPolicy().setMaxBinaryMessageSize(Integer.MAX_VALUE);
 			wsClient.getPolicy().setMaxTextMessageSize(Integer.MAX_VALUE);
 			wsClient.start();
-			wsClient.connect(this, new URI(gateway), new ClientUpgradeRequest());
+			connection = new Connection();
+			wsClient.connect(connection, new URI(gateway), new ClientUpgradeRequest());
 		} catch (Exception e) {
 			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Encountered error while connecting websocket: ", e);
 		} finally {
@@ -271,7 +366,14 @@ public class DiscordWS extends WebSocketAdapter {
 
 		try {
 			heartbeatHandler.shutdown();
-			getSession().close(1000, null); // Discord doesn't care about the reason
+			sendQueue.clear();
+			if (client.sessionStore != null) {
+				persistSession();
+				// Closing with 1000 would end the session, so use a custom code to keep it resumable
+				getSession().close(4000, "Session persisted");
+			} else {
+				getSession().close(1000, null); // Discord doesn't care about the reason
+			}
 			wsClient.stop();
 			hasReceivedReady = false;
 			isReady = false;
@@ -280,6 +382,33 @@ public class DiscordWS extends WebSocketAdapter {
 		}
 	}
 
+	/**
+	 * Restores the session stored in the {@link DiscordClientImpl#sessionStore}, if there is one. The next connection
+	 * will then try to resume it instead of identifying.
+	 */
+	void restoreSession() {
+		if (client.sessionStore == null) return;
+
+		ISessionStore.StoredSession stored = client.sessionStore.load(shard.getInfo()[0], shard.getInfo()[1]);
+		if (stored != null) {
+			Discord4J.LOGGER.info(LogMarkers.WEBSOCKET, "Shard {} is resuming stored session {}.", shard.getInfo()[0], stored.getSessionId());
+			this.sessionId = stored.getSessionId();
+			this.seq = stored.getSequence();
+			this.state = State.RESUMING;
+			this.resumingStoredSession = true;
+		}
+	}
+
+	/**
+	 * Saves the current session in the {@link DiscordClientImpl#sessionStore}, if there is one.
+	 */
+	void persistSession() {
+		String sessionId = this.sessionId;
+		if (client.sessionStore != null && sessionId != null) {
+			client.sessionStore.save(shard.getInfo()[0], shard.getInfo()[1], new ISessionStore.StoredSession(sessionId, seq));
+		}
+	}
+
 	/**
 	 * Invalidates all information of this connection and associated shard.
 	 */
@@ -288,6 +417,8 @@ public class DiscordWS extends WebSocketAdapter {
 		this.hasReceivedReady = false;
 		this.seq = 0;
 		this.sessionId = null;
+		if (client.sessionStore != null) client.sessionStore.clear(shard.getInfo()[0], shard.getInfo()[1]);
+		this.shard.guildCache.forEach((id, guild) -> this.shard.unindex((Guild) guild));
 		this.shard.guildCache.clear();
 		this.shard.privateChannels.clear();
 	}
@@ -309,7 +440,7 @@ public class DiscordWS extends WebSocketAdapter {
 	 */
 	public void send(GatewayPayload payload) {
 		try {
-			send(DiscordUtils.MAPPER.writeValueAsString(payload));
+			sendQueue.send(payload.op == null ? null : GatewayOps.get(payload.op), DiscordUtils.MAPPER.writeValueAsString(payload));
 		} catch (JsonProcessingException e) {
 			Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "JSON Parsing exception!", e);
 		}
@@ -321,16 +452,92 @@ public class DiscordWS extends WebSocketAdapter {
 	 * @param message The message to send.
 	 */
 	public void send(String message) {
+		sendQueue.send(null, message);
+	}
+
+	/**
+	 * Sends a message on the websocket, bypassing the {@link GatewaySendQueue}.
+	 *
+	 * @param message The message to send.
+	 */
+	private void sendNow(String message) {
 		String filteredMessage = message.replace(client.getToken(), "hunter2");
 
 		if (getSession() != null && getSession().isOpen()) {
 			Discord4J.LOGGER.trace(LogMarkers.WEBSOCKET_TRAFFIC, "Sending: " + filteredMessage);
 			getSession().getRemote().sendStringByFuture(message);
+			shard.metrics.getPayloadBytesSent().mark(utf8Length(message));
 		} else {
 			Discord4J.LOGGER.warn(LogMarkers.WEBSOCKET, "Attempt to send message on closed session: {}", filteredMessage);
 		}
 	}
 
+	/**
+	 * Gets the number of bytes a string takes up when encoded as UTF-8, without encoding it.
+	 *
+	 * @param s The string.
+	 * @return The length of the string in UTF-8.
+	 */
+	static int utf8Length(String s) {
+		int length = s.length();
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c >= 0x800) {
+				length += 2;
+				if (Character.isHighSurrogate(c)) i++; // A surrogate pair is 4 bytes, the same as its 2 chars plus 2
+			} else if (c >= 0x80) {
+				length++;
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Receives the events of a single websocket connection and forwards them to the {@link DiscordWS} as long as it is
+	 * the current connection. A previous connection can still deliver frames after a new one has been opened, these
+	 * are dropped instead of being handled as if they were received on the new connection.
+	 */
+	private final class Connection extends WebSocketAdapter {
+
+		/**
+		 * The inflater of the connection if it uses transport compression. Every connection is a new zlib stream.
+		 */
+		private final ZlibStreamInflater inflater = client.transportCompression ? new ZlibStreamInflater() : null;
+
+		private boolean isCurrent() {
+			return connection == this;
+		}
+
+		@Override
+		public void onWebSocketConnect(Session sess) {
+			super.onWebSocketConnect(sess);
+			if (isCurrent()) DiscordWS.this.onWebSocketConnect(sess);
+		}
+
+		@Override
+		public void onWebSocketText(String message) {
+			if (isCurrent()) DiscordWS.this.onWebSocketText(message);
+		}
+
+		@Override
+		public void onWebSocketBinary(byte[] payload, int offset, int len) {
+			if (isCurrent()) DiscordWS.this.onWebSocketBinary(this, payload, offset, len);
+		}
+
+		@Override
+		public void onWebSocketClose(int statusCode, String reason) {
+			super.onWebSocketClose(statusCode, reason);
+			if (inflater != null) inflater.close(); // No more frames are delivered after the close
+			if (isCurrent()) DiscordWS.this.onWebSocketClose(statusCode, reason);
+		}
+
+		@Override
+		public void onWebSocketError(Throwable cause) {
+			super.onWebSocketError(cause);
+			if (isCurrent()) DiscordWS.this.onWebSocketError(cause);
+		}
+	}
+
 	/**
 	 * Represents the state of the websocket connection.
 	 */
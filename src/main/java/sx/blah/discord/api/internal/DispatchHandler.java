@@ -17,7 +17,6 @@
 
 package sx.blah.discord.api.internal;
 
-import com.fasterxml.jackson.databind.JsonNode;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import sx.blah.discord.Discord4J;
 import sx.blah.discord.api.internal.json.event.*;
@@ -59,11 +58,8 @@ import java.time.Instant;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
 
-import static sx.blah.discord.api.internal.DiscordUtils.MAPPER;
 
 /**
  * Handles {@link GatewayOps#DISPATCH} payloads on the Gateway.
@@ -82,15 +78,48 @@ class DispatchHandler {
 	 */
 	private DiscordClientImpl client;
 	/**
-	 * The thread on which every payload is handled.
+	 * The threads on which payloads are handled if the client does not use {@link DispatchLanes}.
 	 */
 	private final ExecutorService dispatchExecutor = new ThreadPoolExecutor(2, Runtime.getRuntime().availableProcessors() * 4, 60L,
 			TimeUnit.SECONDS, new SynchronousQueue<>(false),
 			DiscordUtils.createDaemonThreadFactory("Dispatch Handler"), new ThreadPoolExecutor.CallerRunsPolicy());
+
 	/**
-	 * Lock used to synchronize initialization
+	 * The classes the data of events are deserialized into. Keyed by event name.
 	 */
-	private final Lock startupLock = new ReentrantLock(true);
+	private static final Map<String, Class<?>> PAYLOAD_TYPES = new HashMap<>();
+
+	static {
+		PAYLOAD_TYPES.put("READY", ReadyResponse.class);
+		PAYLOAD_TYPES.put("MESSAGE_CREATE", MessageObject.class);
+		PAYLOAD_TYPES.put("TYPING_START", TypingEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_CREATE", GuildObject.class);
+		PAYLOAD_TYPES.put("GUILD_MEMBER_ADD", GuildMemberAddEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_MEMBER_REMOVE", GuildMemberRemoveEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_MEMBER_UPDATE", GuildMemberUpdateEventResponse.class);
+		PAYLOAD_TYPES.put("MESSAGE_UPDATE", MessageObject.class);
+		PAYLOAD_TYPES.put("MESSAGE_DELETE", MessageDeleteEventResponse.class);
+		PAYLOAD_TYPES.put("MESSAGE_DELETE_BULK", MessageDeleteBulkEventResponse.class);
+		PAYLOAD_TYPES.put("PRESENCE_UPDATE", PresenceUpdateEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_DELETE", GuildObject.class);
+		PAYLOAD_TYPES.put("CHANNEL_CREATE", ChannelObject.class);
+		PAYLOAD_TYPES.put("CHANNEL_DELETE", ChannelObject.class);
+		PAYLOAD_TYPES.put("USER_UPDATE", UserUpdateEventResponse.class);
+		PAYLOAD_TYPES.put("CHANNEL_UPDATE", ChannelObject.class);
+		PAYLOAD_TYPES.put("GUILD_MEMBERS_CHUNK", GuildMemberChunkEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_UPDATE", GuildObject.class);
+		PAYLOAD_TYPES.put("GUILD_ROLE_CREATE", GuildRoleEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_ROLE_UPDATE", GuildRoleEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_ROLE_DELETE", GuildRoleDeleteEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_BAN_ADD", GuildBanEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_BAN_REMOVE", GuildBanEventResponse.class);
+		PAYLOAD_TYPES.put("GUILD_EMOJIS_UPDATE", GuildEmojiUpdateResponse.class);
+		PAYLOAD_TYPES.put("VOICE_STATE_UPDATE", VoiceStateObject.class);
+		PAYLOAD_TYPES.put("VOICE_SERVER_UPDATE", VoiceUpdateResponse.class);
+		PAYLOAD_TYPES.put("MESSAGE_REACTION_ADD", ReactionEventResponse.class);
+		PAYLOAD_TYPES.put("MESSAGE_REACTION_REMOVE", ReactionEventResponse.class);
+		PAYLOAD_TYPES.put("WEBHOOKS_UPDATE", WebhookObject.class);
+	}
 
 	DispatchHandler(DiscordWS ws, ShardImpl shard) {
 		this.ws = ws;
@@ -99,118 +128,122 @@ class DispatchHandler {
 	}
 
 	/**
-	 * Deserializes the given payload and passes it to the appropriate method depending on the event name.
+	 * Gets the class the data of an event is deserialized into.
 	 *
-	 * @param event The json payload.
+	 * @param type The event name.
+	 * @return The class the data of the event is deserialized into, or null if the data is not used.
 	 */
-	public void handle(final JsonNode event) {
-		dispatchExecutor.submit(() -> {
-			boolean locked = false;
-			if (!client.isReady()) {
-				startupLock.lock();
-				locked = true;
-			}
+	static Class<?> getPayloadType(String type) {
+		return PAYLOAD_TYPES.get(type);
+	}
+
+	/**
+	 * Passes the given payload to the appropriate method depending on the event name.
+	 *
+	 * @param type The event name.
+	 * @param payload The data of the event, deserialized into the type given by {@link #getPayloadType(String)}.
+	 */
+	public void handle(String type, Object payload) {
+		Runnable task = () -> {
 			try {
-				String type = event.get("t").asText();
-				JsonNode json = event.get("d");
 				switch (type) {
 					case "RESUMED":
 						resumed();
 						break;
 					case "READY":
-						ready(MAPPER.treeToValue(json, ReadyResponse.class));
+						ready((ReadyResponse) payload);
 						break;
 					case "MESSAGE_CREATE":
-						messageCreate(MAPPER.treeToValue(json, MessageObject.class));
+						messageCreate((MessageObject) payload);
 						break;
 					case "TYPING_START":
-						typingStart(MAPPER.treeToValue(json, TypingEventResponse.class));
+						typingStart((TypingEventResponse) payload);
 						break;
 					case "GUILD_CREATE":
-						guildCreate(MAPPER.treeToValue(json, GuildObject.class));
+						guildCreate((GuildObject) payload);
 						break;
 					case "GUILD_MEMBER_ADD":
-						guildMemberAdd(MAPPER.treeToValue(json, GuildMemberAddEventResponse.class));
+						guildMemberAdd((GuildMemberAddEventResponse) payload);
 						break;
 					case "GUILD_MEMBER_REMOVE":
-						guildMemberRemove(MAPPER.treeToValue(json, GuildMemberRemoveEventResponse.class));
+						guildMemberRemove((GuildMemberRemoveEventResponse) payload);
 						break;
 					case "GUILD_MEMBER_UPDATE":
-						guildMemberUpdate(MAPPER.treeToValue(json, GuildMemberUpdateEventResponse.class));
+						guildMemberUpdate((GuildMemberUpdateEventResponse) payload);
 						break;
 					case "MESSAGE_UPDATE":
-						messageUpdate(MAPPER.treeToValue(json, MessageObject.class));
+						messageUpdate((MessageObject) payload);
 						break;
 					case "MESSAGE_DELETE":
-						messageDelete(MAPPER.treeToValue(json, MessageDeleteEventResponse.class));
+						messageDelete((MessageDeleteEventResponse) payload);
 						break;
 					case "MESSAGE_DELETE_BULK":
-						messageDeleteBulk(MAPPER.treeToValue(json, MessageDeleteBulkEventResponse.class));
+						messageDeleteBulk((MessageDeleteBulkEventResponse) payload);
 						break;
 					case "PRESENCE_UPDATE":
-						presenceUpdate(MAPPER.treeToValue(json, PresenceUpdateEventResponse.class));
+						presenceUpdate((PresenceUpdateEventResponse) payload);
 						break;
 					case "GUILD_DELETE":
-						guildDelete(MAPPER.treeToValue(json, GuildObject.class));
+						guildDelete((GuildObject) payload);
 						break;
 					case "CHANNEL_CREATE":
-						channelCreate(MAPPER.treeToValue(json, ChannelObject.class));
+						channelCreate((ChannelObject) payload);
 						break;
 					case "CHANNEL_DELETE":
-						channelDelete(MAPPER.treeToValue(json, ChannelObject.class));
+						channelDelete((ChannelObject) payload);
 						break;
 					case "CHANNEL_PINS_UPDATE": /* Implemented in MESSAGE_UPDATE. Ignored */
 						break;
 					case "CHANNEL_PINS_ACK": /* Ignored */
 						break;
 					case "USER_UPDATE":
-						userUpdate(MAPPER.treeToValue(json, UserUpdateEventResponse.class));
+						userUpdate((UserUpdateEventResponse) payload);
 						break;
 					case "CHANNEL_UPDATE":
-						channelUpdate(MAPPER.treeToValue(json, ChannelObject.class));
+						channelUpdate((ChannelObject) payload);
 						break;
 					case "GUILD_MEMBERS_CHUNK":
-						guildMembersChunk(MAPPER.treeToValue(json, GuildMemberChunkEventResponse.class));
+						guildMembersChunk((GuildMemberChunkEventResponse) payload);
 						break;
 					case "GUILD_UPDATE":
-						guildUpdate(MAPPER.treeToValue(json, GuildObject.class));
+						guildUpdate((GuildObject) payload);
 						break;
 					case "GUILD_ROLE_CREATE":
-						guildRoleCreate(MAPPER.treeToValue(json, GuildRoleEventResponse.class));
+						guildRoleCreate((GuildRoleEventResponse) payload);
 						break;
 					case "GUILD_ROLE_UPDATE":
-						guildRoleUpdate(MAPPER.treeToValue(json, GuildRoleEventResponse.class));
+						guildRoleUpdate((GuildRoleEventResponse) payload);
 						break;
 					case "GUILD_ROLE_DELETE":
-						guildRoleDelete(MAPPER.treeToValue(json, GuildRoleDeleteEventResponse.class));
+						guildRoleDelete((GuildRoleDeleteEventResponse) payload);
 						break;
 					case "GUILD_BAN_ADD":
-						guildBanAdd(MAPPER.treeToValue(json, GuildBanEventResponse.class));
+						guildBanAdd((GuildBanEventResponse) payload);
 						break;
 					case "GUILD_BAN_REMOVE":
-						guildBanRemove(MAPPER.treeToValue(json, GuildBanEventResponse.class));
+						guildBanRemove((GuildBanEventResponse) payload);
 						break;
 					case "GUILD_EMOJIS_UPDATE":
-						guildEmojisUpdate(MAPPER.treeToValue(json, GuildEmojiUpdateResponse.class));
+						guildEmojisUpdate((GuildEmojiUpdateResponse) payload);
 						break;
 					case "GUILD_INTEGRATIONS_UPDATE": /* TODO: Impl Guild integrations */
 						break;
 					case "VOICE_STATE_UPDATE":
-						voiceStateUpdate(MAPPER.treeToValue(json, VoiceStateObject.class));
+						voiceStateUpdate((VoiceStateObject) payload);
 						break;
 					case "VOICE_SERVER_UPDATE":
-						voiceServerUpdate(MAPPER.treeToValue(json, VoiceUpdateResponse.class));
+						voiceServerUpdate((VoiceUpdateResponse) payload);
 						break;
 					case "MESSAGE_REACTION_ADD":
-						reactionAdd(MAPPER.treeToValue(json, ReactionEventResponse.class));
+						reactionAdd((ReactionEventResponse) payload);
 						break;
 					case "MESSAGE_REACTION_REMOVE":
-						reactionRemove(MAPPER.treeToValue(json, ReactionEventResponse.class));
+						reactionRemove((ReactionEventResponse) payload);
 						break;
 					case "MESSAGE_REACTION_REMOVE_ALL": /* REMOVE_ALL is 204 empty but REACTION_REMOVE is sent anyway */
 						break;
 					case "WEBHOOKS_UPDATE":
-						webhookUpdate(MAPPER.treeToValue(json, WebhookObject.class));
+						webhookUpdate((WebhookObject) payload);
 						break;
 					case "PRESENCES_REPLACE": /* Ignored. Not meant for bot accounts. */
 						break;
@@ -221,10 +254,130 @@ class DispatchHandler {
 			} catch (Exception e) {
 				Discord4J.LOGGER.error(LogMarkers.WEBSOCKET, "Unable to process JSON!", e);
 			} finally {
-				if (locked)
-					startupLock.unlock();
+				shard.metrics.onDispatchHandled();
+			}
+		};
+
+		if (type.equals("READY")) {
+			// Every other dispatch of the session depends on READY, so it is handled before the next payload is read
+			task.run();
+		} else if (client.dispatchLanes != null) {
+			client.dispatchLanes.execute(getPartitionKey(type, payload), task);
+		} else {
+			// While the shard is starting up its guilds are built in parallel, but the events of each guild stay in order.
+			// After READY, a guild's events keep using its lane until its startup events have been handled.
+			long key = getPartitionKey(type, payload);
+			if (!ws.isReady || !StartupLanes.LANES.isIdle(key)) {
+				StartupLanes.LANES.execute(key, task);
+			} else {
+				dispatchExecutor.submit(task);
 			}
-		});
+		}
+	}
+
+	/**
+	 * Holds the lanes dispatches are handled on while a shard is starting up if the client does not use its own
+	 * {@link DispatchLanes}. They are shared by all shards and only created once they are needed.
+	 */
+	private static class StartupLanes {
+		private static final DispatchLanes LANES = new DispatchLanes("Startup Dispatch Lane", Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Gets the key which determines the {@link DispatchLanes lane} a dispatch is handled on. This is the ID of the guild
+	 * the event belongs to, so all events of a guild are handled in order. Events in private channels use the ID of
+	 * the channel and events which don't belong to a guild use 0.
+	 *
+	 * @param type The event name.
+	 * @param payload The data of the event.
+	 * @return The partition key of the dispatch.
+	 */
+	private long getPartitionKey(String type, Object payload) {
+		if (payload == null) return 0;
+
+		switch (type) {
+			case "GUILD_CREATE":
+			case "GUILD_UPDATE":
+			case "GUILD_DELETE":
+				return parsePartitionKey(((GuildObject) payload).id);
+			case "GUILD_MEMBER_ADD":
+				return parsePartitionKey(((GuildMemberAddEventResponse) payload).guild_id);
+			case "GUILD_MEMBER_REMOVE":
+				return parsePartitionKey(((GuildMemberRemoveEventResponse) payload).guild_id);
+			case "GUILD_MEMBER_UPDATE":
+				return parsePartitionKey(((GuildMemberUpdateEventResponse) payload).guild_id);
+			case "GUILD_MEMBERS_CHUNK":
+				return parsePartitionKey(((GuildMemberChunkEventResponse) payload).guild_id);
+			case "GUILD_ROLE_CREATE":
+			case "GUILD_ROLE_UPDATE":
+				return parsePartitionKey(((GuildRoleEventResponse) payload).guild_id);
+			case "GUILD_ROLE_DELETE":
+				return parsePartitionKey(((GuildRoleDeleteEventResponse) payload).guild_id);
+			case "GUILD_BAN_ADD":
+			case "GUILD_BAN_REMOVE":
+				return parsePartitionKey(((GuildBanEventResponse) payload).guild_id);
+			case "GUILD_EMOJIS_UPDATE":
+				return parsePartitionKey(((GuildEmojiUpdateResponse) payload).guild_id);
+			case "PRESENCE_UPDATE":
+				return parsePartitionKey(((PresenceUpdateEventResponse) payload).guild_id);
+			case "VOICE_STATE_UPDATE":
+				return parsePartitionKey(((VoiceStateObject) payload).guild_id);
+			case "VOICE_SERVER_UPDATE":
+				return parsePartitionKey(((VoiceUpdateResponse) payload).guild_id);
+			case "WEBHOOKS_UPDATE":
+				return parsePartitionKey(((WebhookObject) payload).guild_id);
+			case "CHANNEL_CREATE":
+			case "CHANNEL_UPDATE":
+			case "CHANNEL_DELETE":
+				ChannelObject channel = (ChannelObject) payload;
+				return parsePartitionKey(channel.guild_id == null ? channel.id : channel.guild_id);
+			case "MESSAGE_CREATE":
+			case "MESSAGE_UPDATE":
+				MessageObject message = (MessageObject) payload;
+				return getChannelPartitionKey(message.guild_id, message.channel_id);
+			case "MESSAGE_DELETE":
+				MessageDeleteEventResponse delete = (MessageDeleteEventResponse) payload;
+				return getChannelPartitionKey(delete.guild_id, delete.channel_id);
+			case "MESSAGE_DELETE_BULK":
+				MessageDeleteBulkEventResponse bulkDelete = (MessageDeleteBulkEventResponse) payload;
+				return getChannelPartitionKey(bulkDelete.guild_id, bulkDelete.channel_id);
+			case "TYPING_START":
+				TypingEventResponse typing = (TypingEventResponse) payload;
+				return getChannelPartitionKey(typing.guild_id, typing.channel_id);
+			case "MESSAGE_REACTION_ADD":
+			case "MESSAGE_REACTION_REMOVE":
+				ReactionEventResponse reaction = (ReactionEventResponse) payload;
+				return getChannelPartitionKey(reaction.guild_id, reaction.channel_id);
+			default:
+				return 0;
+		}
+	}
+
+	/**
+	 * Gets the partition key of an event in a channel. Discord includes the ID of the guild in these events, so the key
+	 * does not depend on the guild already being cached. If it is missing, the guild is looked up from the cached
+	 * channel.
+	 *
+	 * @param guildID The ID of the guild of the channel. May be null.
+	 * @param channelID The ID of the channel.
+	 * @return The ID of the guild of the channel or the ID of the channel if it is private or unknown.
+	 */
+	private long getChannelPartitionKey(String guildID, String channelID) {
+		if (guildID != null) return parsePartitionKey(guildID);
+
+		long id = parsePartitionKey(channelID);
+		IChannel channel = shard.getChannelByID(id);
+		return channel == null || channel.isPrivate() ? id : channel.getGuild().getLongID();
+	}
+
+	/**
+	 * Parses an ID used as a partition key.
+	 *
+	 * @param id The ID to parse. May be null.
+	 * @return The parsed ID or 0 if it is null.
+	 */
+	private static long parsePartitionKey(String id) {
+		return id == null ? 0 : Long.parseUnsignedLong(id);
 	}
 
 	private void ready(ReadyResponse ready) {
@@ -268,6 +421,10 @@ class DispatchHandler {
 		ws.hasReceivedReady = true; // Technically a lie but irrelevant in the case of a resume.
 		ws.isReady = true;          //
 		client.getDispatcher().dispatch(new ResumedEvent(shard));
+		if (ws.resumingStoredSession) { // The shard resumed a stored session instead of receiving READY when logging in
+			ws.resumingStoredSession = false;
+			client.getDispatcher().dispatch(new ShardReadyEvent(shard));
+		}
 	}
 
 	private void messageCreate(MessageObject json) {
@@ -387,8 +544,7 @@ class DispatchHandler {
 			User user = (User) guild.getUserByID(Long.parseUnsignedLong(event.user.id));
 			if (user != null) {
 				guild.users.remove(user);
-				guild.joinTimes.remove(user);
-				user.roles.remove(guild);
+				guild.removeMember(user);
 				guild.setTotalMemberCount(guild.getTotalMemberCount() - 1);
 				Discord4J.LOGGER.debug(LogMarkers.EVENTS, "User \"{}\" has been removed from or left guild \"{}\".", user.getName(), guild.getName());
 				client.dispatcher.dispatch(new UserLeaveEvent(guild, user));
@@ -419,12 +575,9 @@ class DispatchHandler {
 			}
 
 			if (rolesChanged) {
-				user.roles.remove(guild);
-
-				for (String role : event.roles)
-					user.addRole(guild.getLongID(), guild.getRoleByID(Long.parseUnsignedLong(role)));
-
-				user.addRole(guild.getLongID(), guild.getEveryoneRole());
+				Guild.Member member = user.getMember(guild);
+				long[] roleIDs = DiscordUtils.getRoleIDsFromJSON(guild, event.roles);
+				guild.putMember(user, member == null ? new Guild.Member(user.getLongID(), roleIDs, null, null) : member.withRoles(roleIDs));
 
 				client.dispatcher.dispatch(new UserRoleUpdateEvent(guild, user, oldRoles, user.getRolesForGuild(guild)));
 
@@ -436,7 +589,8 @@ class DispatchHandler {
 			if ((oldNick == null ^ event.nick == null)
 					|| (oldNick != null && !oldNick.equals(event.nick))
 					|| event.nick != null && !event.nick.equals(oldNick)) {
-				user.addNick(guild.getLongID(), event.nick);
+				Guild.Member member = user.getMember(guild);
+				guild.putMember(user, member == null ? new Guild.Member(user.getLongID(), new long[] {guild.getLongID()}, event.nick, null) : member.withNick(event.nick));
 				client.dispatcher.dispatch(new NicknameChangedEvent(guild, user, oldNick, event.nick));
 			}
 		}
@@ -458,6 +612,7 @@ class DispatchHandler {
 		} else {
 			IMessage oldMessage = toUpdate.copy();
 			IMessage updatedMessage = DiscordUtils.getUpdatedMessageFromJSON(client, toUpdate, json);
+			channel.messages.put(updatedMessage); // The cache may store a copy of the message
 			if (json.pinned != null && oldMessage.isPinned() && !json.pinned) {
 				client.dispatcher.dispatch(new MessageUnpinEvent(oldMessage, updatedMessage));
 			} else if (json.pinned != null && !oldMessage.isPinned() && json.pinned) {
@@ -524,7 +679,8 @@ class DispatchHandler {
 		// Clean up cache
 		if (guild != null) {
 			((ShardImpl) guild.getShard()).guildCache.remove(guild);
-			((User) client.getOurUser()).voiceStates.remove(guild.getLongID());
+			((ShardImpl) guild.getShard()).unindex(guild);
+			((User) client.getOurUser()).getVoiceStateCache().remove(guild.getLongID());
 			DiscordVoiceWS vWS = shard.voiceWebSockets.get(guildId);
 			if (vWS != null) {
 				vWS.disconnect(VoiceDisconnectedEvent.Reason.LEFT_CHANNEL);
@@ -569,10 +725,12 @@ class DispatchHandler {
 		if (json.type == ChannelObject.Type.GUILD_TEXT) {
 			Channel channel = (Channel) client.getChannelByID(Long.parseUnsignedLong(json.id));
 			if (channel != null) {
-				if (!channel.isPrivate())
+				if (!channel.isPrivate()) {
 					((Guild) channel.getGuild()).channels.remove(channel);
-				else
+					channel.messages.unindex();
+				} else {
 					shard.privateChannels.remove(channel);
+				}
 				client.dispatcher.dispatch(new ChannelDeleteEvent(channel));
 			}
 		} else if (json.type == ChannelObject.Type.GUILD_VOICE) {
@@ -704,10 +862,10 @@ class DispatchHandler {
 	private void guildBanAdd(GuildBanEventResponse event) {
 		Guild guild = (Guild) client.getGuildByID(Long.parseUnsignedLong(event.guild_id));
 		if (guild != null) {
-			IUser user = DiscordUtils.getUserFromJSON(shard, event.user);
+			User user = DiscordUtils.getUserFromJSON(shard, event.user);
 			if (guild.getUserByID(user.getLongID()) != null) {
 				guild.users.remove(user);
-				guild.joinTimes.remove(user);
+				guild.removeMember(user);
 			}
 
 			client.dispatcher.dispatch(new UserBanEvent(guild, user));
@@ -727,12 +885,12 @@ class DispatchHandler {
 		User user = (User) shard.getUserByID(Long.parseUnsignedLong(json.user_id));
 
 		if (user != null) {
-			IVoiceState curVoiceState = user.voiceStates.get(json.guild_id);
+			IVoiceState curVoiceState = user.getVoiceStateCache().get(json.guild_id);
 
 			IVoiceChannel channel = json.channel_id != null ? shard.getVoiceChannelByID(Long.parseUnsignedLong(json.channel_id)) : null;
 			IVoiceChannel oldChannel = curVoiceState == null ? null : curVoiceState.getChannel();
 
-			user.voiceStates.put(DiscordUtils.getVoiceStateFromJson(shard.getGuildByID(Long.parseUnsignedLong(json.guild_id)), json));
+			user.getVoiceStateCache().put(DiscordUtils.getVoiceStateFromJson(shard.getGuildByID(Long.parseUnsignedLong(json.guild_id)), json));
 
 			if (oldChannel != channel) {
 				if (channel == null) {
@@ -802,6 +960,7 @@ class DispatchHandler {
 			reaction = new Reaction(message, reaction.getCount() + 1, reaction.getEmoji());
 		}
 		message.getReactions().add(reaction);
+		if (cached) ((Channel) channel).messages.put(message); // The cache may store a copy of the message
 
 		IUser user;
 		if (channel.isPrivate()) {
@@ -842,6 +1001,7 @@ class DispatchHandler {
 		if (reaction.getCount() > 0) {
 			message.getReactions().add(reaction);
 		}
+		if (cached) ((Channel) channel).messages.put(message); // The cache may store a copy of the message
 
 
 		IUser user;
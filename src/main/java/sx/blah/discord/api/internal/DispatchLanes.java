@@ -0,0 +1,91 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * A fixed set of single-threaded lanes which gateway dispatches are partitioned onto.
+ *
+ * <p>Every task submitted with the same key runs on the same lane, so dispatches for a guild are handled one at a time
+ * and in the order they were received while dispatches for different guilds are handled in parallel.
+ */
+class DispatchLanes {
+
+	/**
+	 * The single-threaded executors backing each lane.
+	 */
+	private final ExecutorService[] lanes;
+	/**
+	 * The number of tasks which have been submitted to each lane and have not finished yet.
+	 */
+	private final AtomicIntegerArray pending;
+
+	DispatchLanes(String name, int count) {
+		if (count < 1) throw new IllegalArgumentException("There must be at least one dispatch lane.");
+
+		lanes = new ExecutorService[count];
+		pending = new AtomicIntegerArray(count);
+		for (int i = 0; i < count; i++) {
+			lanes[i] = Executors.newSingleThreadExecutor(DiscordUtils.createDaemonThreadFactory(name + " " + i));
+		}
+	}
+
+	/**
+	 * Runs a task on the lane for the given key.
+	 *
+	 * @param key The key which determines the lane. Usually a guild ID.
+	 * @param task The task to run.
+	 */
+	void execute(long key, Runnable task) {
+		int lane = getLane(key, lanes.length);
+		pending.incrementAndGet(lane);
+		lanes[lane].execute(() -> {
+			try {
+				task.run();
+			} finally {
+				pending.decrementAndGet(lane);
+			}
+		});
+	}
+
+	/**
+	 * Gets whether every task which was submitted to the lane for the given key has finished.
+	 *
+	 * @param key The key which determines the lane.
+	 * @return Whether the lane for the key is idle.
+	 */
+	boolean isIdle(long key) {
+		return pending.get(getLane(key, lanes.length)) == 0;
+	}
+
+	/**
+	 * Gets the index of the lane a key is assigned to.
+	 *
+	 * @param key The key.
+	 * @param count The number of lanes.
+	 * @return The index of the lane for the key.
+	 */
+	static int getLane(long key, int count) {
+		// Spread the bits which actually vary between snowflakes (timestamp and increment) over the whole hash
+		int hash = Long.hashCode(key);
+		hash ^= hash >>> 16;
+		return Math.floorMod(hash, count);
+	}
+}
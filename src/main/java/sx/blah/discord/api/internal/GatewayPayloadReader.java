@@ -0,0 +1,114 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+import sx.blah.discord.api.internal.json.GatewayPayload;
+
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Reads {@link GatewayPayload}s received on the main gateway in a single pass.
+ *
+ * <p>The data of a {@link GatewayOps#DISPATCH} payload is bound directly to the class given by
+ * {@link DispatchHandler#getPayloadType(String)} instead of going through an intermediate tree. Events whose data
+ * is not used, or which are ignored by the client, are skipped without being bound at all. The data of any other
+ * payload is read as a tree.
+ */
+class GatewayPayloadReader {
+
+	private GatewayPayloadReader() {}
+
+	/**
+	 * Reads a payload from the given parser.
+	 *
+	 * @param parser The parser positioned before the start of the payload.
+	 * @param ignoredDispatchTypes The names of the dispatch events whose data is skipped.
+	 * @return The payload.
+	 * @throws IOException If the payload could not be read.
+	 */
+	static GatewayPayload read(JsonParser parser, Set<String> ignoredDispatchTypes) throws IOException {
+		GatewayPayload payload = new GatewayPayload();
+		TokenBuffer buffered = null;
+
+		if (parser.nextToken() != JsonToken.START_OBJECT)
+			throw new IOException("Expected a gateway payload object but found " + parser.getCurrentToken());
+
+		while (parser.nextToken() == JsonToken.FIELD_NAME) {
+			String field = parser.getCurrentName();
+			JsonToken value = parser.nextToken();
+			switch (field) {
+				case "op":
+					payload.op = value == JsonToken.VALUE_NULL ? null : parser.getIntValue();
+					break;
+				case "s":
+					payload.s = value == JsonToken.VALUE_NULL ? null : parser.getIntValue();
+					break;
+				case "t":
+					payload.t = value == JsonToken.VALUE_NULL ? null : parser.getText();
+					break;
+				case "d":
+					if (payload.op == null || (payload.op == GatewayOps.DISPATCH.ordinal() && payload.t == null)) {
+						// Discord doesn't guarantee field order, so hold on to the data until we know what it is
+						buffered = new TokenBuffer(parser);
+						buffered.copyCurrentStructure(parser);
+					} else {
+						payload.d = readData(parser, payload, ignoredDispatchTypes);
+					}
+					break;
+				default:
+					parser.skipChildren();
+			}
+		}
+
+		if (buffered != null) {
+			try (JsonParser bufferedParser = buffered.asParser(parser.getCodec())) {
+				bufferedParser.nextToken();
+				payload.d = readData(bufferedParser, payload, ignoredDispatchTypes);
+			}
+		}
+
+		return payload;
+	}
+
+	/**
+	 * Reads the data of a payload from the given parser.
+	 *
+	 * @param parser The parser positioned at the first token of the data.
+	 * @param payload The payload the data belongs to. Its op and event name must already be known.
+	 * @param ignoredDispatchTypes The names of the dispatch events whose data is skipped.
+	 * @return The data of the payload.
+	 * @throws IOException If the data could not be read.
+	 */
+	private static Object readData(JsonParser parser, GatewayPayload payload, Set<String> ignoredDispatchTypes) throws IOException {
+		if (parser.getCurrentToken() == JsonToken.VALUE_NULL) return null;
+
+		if (payload.op != null && payload.op == GatewayOps.DISPATCH.ordinal()) {
+			Class<?> type = payload.t == null || ignoredDispatchTypes.contains(payload.t) ? null : DispatchHandler.getPayloadType(payload.t);
+			if (type == null) {
+				parser.skipChildren();
+				return null;
+			}
+			return DiscordUtils.MAPPER.readValue(parser, type);
+		}
+
+		return DiscordUtils.MAPPER.readTree(parser);
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Queues the messages a shard sends on the gateway so it never exceeds Discord's limit of {@link #LIMIT} messages per
+ * {@link #WINDOW} milliseconds, which would get the connection closed.
+ *
+ * <p>Heartbeats, IDENTIFYs and RESUMEs are sent ahead of every other message and may use the {@link #RESERVED}
+ * messages of every window which other messages can't use, so they are normally sent immediately. If even those are
+ * used up they wait for the window like everything else. Every other message waits until the connection is
+ * authenticated and the window has room for it. Presence updates are coalesced: if one is still queued, a newer one
+ * replaces it instead of being queued as well.
+ */
+class GatewaySendQueue {
+
+	/**
+	 * The maximum number of messages which may be sent per window.
+	 */
+	static final int LIMIT = 120;
+	/**
+	 * The length of a window in milliseconds.
+	 */
+	static final long WINDOW = 60_000;
+	/**
+	 * The number of messages per window only heartbeats, IDENTIFYs and RESUMEs may use.
+	 */
+	static final int RESERVED = 4;
+
+	/**
+	 * The thread queued messages are sent on once their window has room. Shared by all shards.
+	 */
+	private static final ScheduledExecutorService SCHEDULER =
+			Executors.newSingleThreadScheduledExecutor(DiscordUtils.createDaemonThreadFactory("Gateway Send Queue"));
+
+	/**
+	 * Placeholder in the {@link #queue} for the coalesced {@link #pendingPresence}.
+	 */
+	private static final String PRESENCE = new String("presence");
+
+	/**
+	 * Sends a message on the connection.
+	 */
+	private final Consumer<String> sender;
+	/**
+	 * The times at which the messages of the current window were sent, as a ring buffer.
+	 */
+	private final long[] sent = new long[LIMIT];
+	/**
+	 * The index of the oldest entry in {@link #sent}.
+	 */
+	private int sentStart;
+	/**
+	 * The number of entries in {@link #sent}.
+	 */
+	private int sentCount;
+	/**
+	 * Heartbeats, IDENTIFYs and RESUMEs waiting to be sent. These are sent before anything in {@link #queue}.
+	 */
+	private final Queue<String> reserved = new ArrayDeque<>();
+	/**
+	 * Messages waiting to be sent.
+	 */
+	private final Queue<String> queue = new ArrayDeque<>();
+	/**
+	 * The latest queued presence update, or null if none is queued.
+	 */
+	private String pendingPresence;
+	/**
+	 * Whether the connection sent an IDENTIFY or RESUME, so it may send other messages.
+	 */
+	private boolean authenticated;
+	/**
+	 * Whether a {@link #drain()} is scheduled.
+	 */
+	private boolean drainScheduled;
+
+	GatewaySendQueue(Consumer<String> sender) {
+		this.sender = sender;
+	}
+
+	/**
+	 * Sends a message now or as soon as the rate limit allows it.
+	 *
+	 * @param op The opcode of the message, or null if it is unknown.
+	 * @param message The serialized message.
+	 */
+	synchronized void send(GatewayOps op, String message) {
+		if (op == GatewayOps.HEARTBEAT || op == GatewayOps.IDENTIFY || op == GatewayOps.RESUME) {
+			// Reserved messages are always sent first, so other messages still can't overtake the IDENTIFY or RESUME
+			if (op != GatewayOps.HEARTBEAT) authenticated = true;
+			reserved.add(message);
+			drain();
+			return;
+		}
+
+		if (op == GatewayOps.STATUS_UPDATE) {
+			boolean queued = pendingPresence != null;
+			pendingPresence = message;
+			if (queued) return; // Replaces the queued update
+			message = PRESENCE;
+		}
+		queue.add(message);
+		drain();
+	}
+
+	/**
+	 * Called when a new connection is opened. The new connection has a fresh rate limit but must authenticate before
+	 * queued messages are sent.
+	 */
+	synchronized void reset() {
+		authenticated = false;
+		reserved.clear(); // Belonged to the previous connection
+		sentStart = 0;
+		sentCount = 0;
+	}
+
+	/**
+	 * Drops every queued message.
+	 */
+	synchronized void clear() {
+		reserved.clear();
+		queue.clear();
+		pendingPresence = null;
+	}
+
+	/**
+	 * Sends as many queued messages as the rate limit allows and schedules sending the rest.
+	 */
+	private synchronized void drain() {
+		long now = System.currentTimeMillis();
+		while (sentCount > 0 && sent[sentStart] + WINDOW <= now) { // Forget messages of past windows
+			sentStart = (sentStart + 1) % LIMIT;
+			sentCount--;
+		}
+
+		while (!reserved.isEmpty() && sentCount < LIMIT) {
+			record(now);
+			sender.accept(reserved.poll());
+		}
+
+		while (authenticated && reserved.isEmpty() && !queue.isEmpty() && sentCount < LIMIT - RESERVED) {
+			String message = queue.poll();
+			if (message == PRESENCE) {
+				message = pendingPresence;
+				pendingPresence = null;
+			}
+			record(now);
+			sender.accept(message);
+		}
+
+		if (!drainScheduled && (!reserved.isEmpty() || (authenticated && !queue.isEmpty()))) {
+			drainScheduled = true;
+			SCHEDULER.schedule(this::scheduledDrain, sent[sentStart] + WINDOW - now, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private synchronized void scheduledDrain() {
+		drainScheduled = false;
+		drain();
+	}
+
+	/**
+	 * Records that a message was sent. Callers must ensure the window has room for it.
+	 *
+	 * @param time The time at which the message was sent.
+	 */
+	private void record(long time) {
+		sent[(sentStart + sentCount) % LIMIT] = time;
+		sentCount++;
+	}
+}
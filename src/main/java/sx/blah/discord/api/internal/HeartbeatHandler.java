@@ -79,8 +79,8 @@ class HeartbeatHandler {
 				Discord4J.LOGGER.debug(LogMarkers.WEBSOCKET, "Last heartbeat not acknowledged by Discord. Total: {}", missedPings.get());
 
 				if (missedPings.get() == maxMissedPings) {
-					Discord4J.LOGGER.info(LogMarkers.WEBSOCKET, "Missed max number of heartbeat acks. Opening new session.");
-					ws.state = DiscordWS.State.RECONNECTING;
+					Discord4J.LOGGER.info(LogMarkers.WEBSOCKET, "Missed max number of heartbeat acks. Reconnecting and resuming.");
+					ws.state = DiscordWS.State.RESUMING; // The session is still valid, only the connection is dead
 					ws.client.reconnectManager.scheduleReconnect(ws);
 				}
 			} else {
@@ -91,6 +91,7 @@ class HeartbeatHandler {
 			ws.send(GatewayOps.HEARTBEAT, ws.seq);
 			sentHeartbeatAt = System.currentTimeMillis();
 			waitingForAck.set(true);
+			ws.persistSession();
 		};
 	}
 
@@ -114,7 +115,7 @@ class HeartbeatHandler {
 			Discord4J.LOGGER.debug(LogMarkers.WEBSOCKET, "Received heartbeat ack without sending a heartbeat. Is the websocket out of sync?");
 		}
 		ackResponseTime = System.currentTimeMillis() - sentHeartbeatAt;
-		waitingForAck.set(false);
+		if (waitingForAck.getAndSet(false)) ws.shard.metrics.getHeartbeatLatency().record(ackResponseTime);
 	}
 
 	/**
@@ -0,0 +1,100 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the IDENTIFYs of a client's shards according to Discord's session start rate limit.
+ *
+ * <p>Shards are grouped into buckets by <code>shard_id % max_concurrency</code>. Each bucket may identify once every
+ * {@link #IDENTIFY_DELAY} milliseconds, so up to <code>max_concurrency</code> shards identify at the same time. Waiting
+ * happens on a scheduler thread, so shards which are waiting to identify don't block anything.
+ */
+class IdentifyLimiter {
+
+	/**
+	 * The number of milliseconds a bucket has to wait between IDENTIFYs.
+	 */
+	static final long IDENTIFY_DELAY = 5000;
+
+	/**
+	 * The thread IDENTIFYs are delayed on.
+	 */
+	private final ScheduledExecutorService scheduler =
+			Executors.newSingleThreadScheduledExecutor(DiscordUtils.createDaemonThreadFactory("Identify Limiter"));
+	/**
+	 * The earliest time at which each bucket may identify next.
+	 */
+	private long[] nextIdentify = new long[1];
+
+	/**
+	 * Sets the number of shards which may identify at the same time, as given by the session start limit of the
+	 * gateway.
+	 *
+	 * @param maxConcurrency The number of shards which may identify at the same time.
+	 */
+	synchronized void setMaxConcurrency(int maxConcurrency) {
+		if (maxConcurrency < 1) maxConcurrency = 1;
+		if (maxConcurrency != nextIdentify.length) {
+			long latest = Arrays.stream(nextIdentify).max().orElse(0);
+			nextIdentify = new long[maxConcurrency];
+			Arrays.fill(nextIdentify, latest); // Don't let a resize skip a pending delay
+		}
+	}
+
+	/**
+	 * Gets the number of shards which may identify at the same time.
+	 *
+	 * @return The number of shards which may identify at the same time.
+	 */
+	synchronized int getMaxConcurrency() {
+		return nextIdentify.length;
+	}
+
+	/**
+	 * Runs an IDENTIFY for a shard as soon as its bucket allows it.
+	 *
+	 * @param shard The index of the shard which identifies.
+	 * @param identify The task which sends the IDENTIFY.
+	 */
+	void schedule(int shard, Runnable identify) {
+		long delay = reserve(shard, System.currentTimeMillis());
+		if (delay <= 0) {
+			identify.run();
+		} else {
+			scheduler.schedule(identify, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Reserves the next IDENTIFY slot of a shard's bucket.
+	 *
+	 * @param shard The index of the shard which identifies.
+	 * @param now The current time in milliseconds.
+	 * @return The number of milliseconds until the reserved slot.
+	 */
+	synchronized long reserve(int shard, long now) {
+		int bucket = shard % nextIdentify.length;
+		long slot = Math.max(now, nextIdentify[bucket]);
+		nextIdentify[bucket] = slot + IDENTIFY_DELAY;
+		return slot - now;
+	}
+}
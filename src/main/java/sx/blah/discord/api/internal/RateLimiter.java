@@ -0,0 +1,548 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.utils.DateUtils;
+import sx.blah.discord.Discord4J;
+import sx.blah.discord.util.LogMarkers;
+import sx.blah.discord.util.RequestPriority;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules HTTP requests so that they obey Discord's rate limits. Rather than failing requests which would be rate
+ * limited, requests are queued per bucket and released as soon as the bucket has capacity again. Queued requests are
+ * released in order of their {@link RequestPriority}, then in the order they were made.
+ *
+ * <p>Every request must first {@link #acquire(String)} a permit for its bucket. Once the request completes, the permit
+ * must be returned with either {@link #update(String, HttpResponse)} (if a response was received) or
+ * {@link #release(String)} (if no response was received).
+ *
+ * @see <a href=https://discordapp.com/developers/docs/topics/rate-limits>Rate Limits</a>
+ */
+class RateLimiter {
+
+	/**
+	 * The number of requests per second Discord allows across all buckets.
+	 */
+	static final int GLOBAL_REQUESTS_PER_SECOND = 50;
+
+	/**
+	 * The resources whose ID is a major parameter. Requests to different major parameters have independent buckets.
+	 */
+	private static final Set<String> MAJOR_PARAMETERS = new HashSet<>(Arrays.asList("channels", "guilds", "webhooks"));
+
+	/**
+	 * The interval (in milliseconds) at which buckets which are no longer in use are removed.
+	 */
+	private static final long SWEEP_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+	/**
+	 * The thread on which queued requests are released when their bucket resets.
+	 */
+	private static final ScheduledExecutorService RESET_EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+			DiscordUtils.createDaemonThreadFactory("Rate Limit Reset Handler"));
+
+	/**
+	 * The per-route buckets. Keyed by the bucket name.
+	 */
+	private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+
+	/**
+	 * The token bucket shared by every request to enforce the global rate limit.
+	 */
+	private final GlobalBucket global = new GlobalBucket();
+
+	/**
+	 * The last time (in epoch milliseconds) idle buckets were removed from {@link #buckets}.
+	 */
+	private volatile long lastSweep = System.currentTimeMillis();
+
+	/**
+	 * Gets the name of the rate limit bucket a request belongs to. This is the request's method and route with every
+	 * ID except the major parameter replaced by a placeholder, for example
+	 * {@code DELETE /api/v6/channels/1234/messages/{id}}.
+	 *
+	 * @param method The HTTP method of the request.
+	 * @param path The path of the request's URI.
+	 * @return The name of the bucket.
+	 */
+	static String getBucket(String method, String path) {
+		StringBuilder route = new StringBuilder(method).append(' ');
+		String previous = null;
+		boolean majorFound = false;
+		for (String segment : path.split("/")) {
+			if (segment.isEmpty()) continue;
+
+			route.append('/');
+			if (previous != null && previous.equals("reactions")) {
+				route.append("{emoji}");
+			} else if (isSnowflake(segment)) {
+				if (!majorFound && previous != null && MAJOR_PARAMETERS.contains(previous)) {
+					route.append(segment);
+					majorFound = true;
+				} else {
+					route.append("{id}");
+				}
+			} else if (previous != null && isSnowflake(previous) && route.indexOf("/webhooks/") != -1) {
+				route.append("{token}"); // webhook tokens follow the webhook ID and should never end up in logs
+			} else {
+				route.append(segment);
+			}
+			previous = segment;
+		}
+		return route.toString();
+	}
+
+	private static boolean isSnowflake(String segment) {
+		for (int i = 0; i < segment.length(); i++) {
+			if (!Character.isDigit(segment.charAt(i))) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets a future which is completed when a request in the given bucket may be sent.
+	 *
+	 * @param bucket The bucket the request belongs to.
+	 * @return A future which is completed when the request may be sent.
+	 */
+	CompletableFuture<Void> acquire(String bucket) {
+		return acquire(bucket, RequestPriority.NORMAL);
+	}
+
+	/**
+	 * Gets a future which is completed when a request in the given bucket may be sent.
+	 *
+	 * @param bucket The bucket the request belongs to.
+	 * @param priority The priority of the request.
+	 * @return A future which is completed when the request may be sent.
+	 */
+	CompletableFuture<Void> acquire(String bucket, RequestPriority priority) {
+		sweepIfDue();
+		// The permit is taken inside compute() so the sweep can't remove the bucket between it being looked up and used
+		List<CompletableFuture<Void>> permit = new ArrayList<>(1);
+		buckets.compute(bucket, (name, existing) -> {
+			Bucket b = existing == null ? new Bucket(name) : existing;
+			permit.add(b.acquire(priority));
+			return b;
+		});
+		return permit.get(0).thenCompose(v -> global.acquire(priority));
+	}
+
+	/**
+	 * Returns a permit to its bucket and updates the bucket with the rate limit information of a response.
+	 *
+	 * @param bucket The bucket the request belongs to.
+	 * @param response The response that was received.
+	 */
+	void update(String bucket, HttpResponse response) {
+		getBucket(bucket).update(response);
+	}
+
+	/**
+	 * Returns a permit to its bucket without any new rate limit information. This should be called if a request failed
+	 * without receiving a response.
+	 *
+	 * @param bucket The bucket the request belongs to.
+	 */
+	void release(String bucket) {
+		getBucket(bucket).release();
+	}
+
+	/**
+	 * Gives up on a permit which was requested with {@link #acquire(String, RequestPriority)}, for example because the
+	 * thread waiting for it was interrupted. If the permit has been granted it is returned to its bucket immediately,
+	 * otherwise it is returned as soon as it is granted.
+	 *
+	 * @param bucket The bucket the request belongs to.
+	 * @param permit The future returned by {@link #acquire(String, RequestPriority)}.
+	 */
+	void abandon(String bucket, CompletableFuture<Void> permit) {
+		permit.whenComplete((v, e) -> {
+			if (e == null) release(bucket);
+		});
+	}
+
+	/**
+	 * Called when Discord responds with a 429. No requests in the bucket (or at all if the limit is global) will be
+	 * released until the limit is over.
+	 *
+	 * @param bucket The bucket the request belongs to.
+	 * @param retryAfter The time in milliseconds until the limit is over.
+	 * @param isGlobal Whether the limit is global.
+	 */
+	void onRateLimited(String bucket, long retryAfter, boolean isGlobal) {
+		Discord4J.LOGGER.debug(LogMarkers.API, "Hit {} rate limit for bucket {}. Retrying in {}ms.",
+				isGlobal ? "global" : "route", bucket, retryAfter);
+
+		if (isGlobal) {
+			global.pause(retryAfter);
+		} else {
+			getBucket(bucket).pause(retryAfter);
+		}
+	}
+
+	/**
+	 * Gets the number of requests which are waiting for capacity in any bucket.
+	 *
+	 * @return The number of queued requests.
+	 */
+	int getQueuedRequestCount() {
+		return buckets.values().stream().mapToInt(Bucket::getQueueSize).sum() + global.getQueueSize();
+	}
+
+	/**
+	 * Gets the number of buckets which are currently tracked.
+	 *
+	 * @return The number of buckets.
+	 */
+	int getBucketCount() {
+		return buckets.size();
+	}
+
+	private Bucket getBucket(String bucket) {
+		return buckets.computeIfAbsent(bucket, Bucket::new);
+	}
+
+	private void sweepIfDue() {
+		long now = System.currentTimeMillis();
+		if (now - lastSweep <= SWEEP_INTERVAL) return;
+		lastSweep = now;
+		sweep();
+	}
+
+	/**
+	 * Removes buckets which are idle. Each bucket is checked and removed atomically so a bucket which is concurrently
+	 * being acquired is never discarded.
+	 */
+	void sweep() {
+		for (String name : buckets.keySet()) {
+			buckets.computeIfPresent(name, (k, b) -> b.isIdle() ? null : b);
+		}
+	}
+
+	/**
+	 * Completes the given futures. This is always done outside of a bucket's monitor so continuations never run while
+	 * holding it.
+	 */
+	private static void completeAll(List<CompletableFuture<Void>> futures) {
+		for (CompletableFuture<Void> future : futures) {
+			future.complete(null);
+		}
+	}
+
+	/**
+	 * A rate limit bucket for a single route. The bucket starts with a single permit so the first request can discover
+	 * the real limit from Discord's response headers.
+	 */
+	private static final class Bucket {
+
+		private final String name;
+		/**
+		 * Requests waiting for capacity.
+		 */
+		private final Lanes queue = new Lanes();
+		/**
+		 * The maximum number of requests per window, as reported by X-RateLimit-Limit.
+		 */
+		private int limit = 1;
+		/**
+		 * The number of requests which may still be sent in the current window.
+		 */
+		private int remaining = 1;
+		/**
+		 * The number of requests which have been sent but have not returned their permit.
+		 */
+		private int inFlight = 0;
+		/**
+		 * The time (in epoch milliseconds) at which the current window ends.
+		 */
+		private long resetAt = 0;
+		/**
+		 * Whether Discord has reported that this bucket has no rate limit.
+		 */
+		private boolean unlimited = false;
+		/**
+		 * Whether a reset has been scheduled on {@link #RESET_EXECUTOR}.
+		 */
+		private boolean resetScheduled = false;
+
+		private Bucket(String name) {
+			this.name = name;
+		}
+
+		CompletableFuture<Void> acquire(RequestPriority priority) {
+			synchronized (this) {
+				if (unlimited || (queue.isEmpty() && tryTakePermit())) {
+					inFlight++;
+					return CompletableFuture.completedFuture(null);
+				}
+
+				CompletableFuture<Void> future = new CompletableFuture<>();
+				queue.add(future, priority);
+				scheduleResetIfExhausted();
+				return future;
+			}
+		}
+
+		void update(HttpResponse response) {
+			List<CompletableFuture<Void>> released;
+			synchronized (this) {
+				inFlight = Math.max(0, inFlight - 1);
+
+				Header remainingHeader = response.getFirstHeader("X-RateLimit-Remaining");
+				Header resetHeader = response.getFirstHeader("X-RateLimit-Reset");
+				if (remainingHeader == null || resetHeader == null) {
+					int status = response.getStatusLine().getStatusCode();
+					if (status >= 200 && status < 300) unlimited = true;
+					// Errors (such as a 5xx from Discord's edge or a global 429) say nothing about the route's limit. A
+					// route 429 is released by the reset scheduled in pause(), otherwise the permit has to be returned
+					// here if no window is pending or the bucket would never refill.
+					else if (resetAt <= System.currentTimeMillis()) remaining++;
+				} else {
+					unlimited = false;
+					Header limitHeader = response.getFirstHeader("X-RateLimit-Limit");
+					if (limitHeader != null) limit = Integer.parseInt(limitHeader.getValue());
+
+					int reportedRemaining = Integer.parseInt(remainingHeader.getValue());
+					long reportedReset = toLocalTime(Long.parseLong(resetHeader.getValue()) * 1000, response);
+					if (reportedReset > resetAt) { // new window, requests which are still in flight count against it
+						resetAt = reportedReset;
+						remaining = Math.max(0, reportedRemaining - inFlight);
+					} else {
+						remaining = Math.min(remaining, reportedRemaining);
+					}
+				}
+
+				released = drain();
+				scheduleResetIfExhausted();
+			}
+			completeAll(released);
+		}
+
+		void release() {
+			List<CompletableFuture<Void>> released;
+			synchronized (this) {
+				inFlight = Math.max(0, inFlight - 1);
+				remaining++;
+				released = drain();
+			}
+			completeAll(released);
+		}
+
+		void pause(long retryAfter) {
+			synchronized (this) {
+				remaining = 0;
+				resetAt = Math.max(resetAt, System.currentTimeMillis() + retryAfter);
+				scheduleResetIfExhausted();
+			}
+		}
+
+		synchronized int getQueueSize() {
+			return queue.size();
+		}
+
+		/**
+		 * Gets whether the bucket has no pending requests and its window has ended, so it can be discarded without
+		 * losing any rate limit information.
+		 */
+		synchronized boolean isIdle() {
+			return queue.isEmpty() && inFlight == 0 && System.currentTimeMillis() >= resetAt;
+		}
+
+		/**
+		 * Takes a permit if one is available, refilling the bucket if its window has ended.
+		 */
+		private boolean tryTakePermit() {
+			if (remaining <= 0 && resetAt != 0 && System.currentTimeMillis() >= resetAt) {
+				remaining = limit;
+				resetAt = 0;
+			}
+
+			if (remaining > 0) {
+				remaining--;
+				return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Removes as many requests from the queue as there is capacity for.
+		 */
+		private List<CompletableFuture<Void>> drain() {
+			List<CompletableFuture<Void>> released = new ArrayList<>();
+			while (!queue.isEmpty() && (unlimited || tryTakePermit())) {
+				inFlight++;
+				released.add(queue.poll());
+			}
+			return released;
+		}
+
+		/**
+		 * Schedules the bucket to be refilled at the end of its window if requests are waiting on it.
+		 */
+		private void scheduleResetIfExhausted() {
+			if (resetScheduled || queue.isEmpty() || remaining > 0 || resetAt == 0) return;
+
+			resetScheduled = true;
+			long delay = Math.max(0, resetAt - System.currentTimeMillis());
+			Discord4J.LOGGER.trace(LogMarkers.API, "Bucket {} exhausted, releasing {} queued requests in {}ms.",
+					name, queue.size(), delay);
+			RESET_EXECUTOR.schedule(() -> {
+				List<CompletableFuture<Void>> released;
+				synchronized (this) {
+					resetScheduled = false;
+					released = drain();
+					scheduleResetIfExhausted();
+				}
+				completeAll(released);
+			}, delay, TimeUnit.MILLISECONDS);
+		}
+
+		/**
+		 * Converts a time reported by Discord to the local clock using the response's Date header to account for skew.
+		 */
+		private static long toLocalTime(long discordTime, HttpResponse response) {
+			Header dateHeader = response.getFirstHeader("Date");
+			Date date = dateHeader == null ? null : DateUtils.parseDate(dateHeader.getValue());
+			if (date == null) return discordTime;
+			// The Date header is truncated to the second, so this errs on the side of waiting slightly too long
+			return System.currentTimeMillis() + Math.max(0, discordTime - date.getTime());
+		}
+	}
+
+	/**
+	 * A token bucket which enforces the global rate limit shared by all routes.
+	 */
+	private static final class GlobalBucket {
+
+		private final Lanes queue = new Lanes();
+		private double tokens = GLOBAL_REQUESTS_PER_SECOND;
+		private long lastRefill = System.currentTimeMillis();
+		/**
+		 * The time (in epoch milliseconds) until which Discord has told us to stop sending requests entirely.
+		 */
+		private long pausedUntil = 0;
+		private boolean drainScheduled = false;
+
+		CompletableFuture<Void> acquire(RequestPriority priority) {
+			synchronized (this) {
+				if (queue.isEmpty() && tryTakeToken()) return CompletableFuture.completedFuture(null);
+
+				CompletableFuture<Void> future = new CompletableFuture<>();
+				queue.add(future, priority);
+				scheduleDrain();
+				return future;
+			}
+		}
+
+		void pause(long retryAfter) {
+			synchronized (this) {
+				pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + retryAfter);
+				tokens = 0;
+			}
+		}
+
+		synchronized int getQueueSize() {
+			return queue.size();
+		}
+
+		private boolean tryTakeToken() {
+			long now = System.currentTimeMillis();
+			if (now < pausedUntil) return false;
+
+			tokens = Math.min(GLOBAL_REQUESTS_PER_SECOND, tokens + (now - lastRefill) * GLOBAL_REQUESTS_PER_SECOND / 1000D);
+			lastRefill = now;
+			if (tokens >= 1) {
+				tokens--;
+				return true;
+			}
+			return false;
+		}
+
+		private void scheduleDrain() {
+			if (drainScheduled || queue.isEmpty()) return;
+
+			drainScheduled = true;
+			long now = System.currentTimeMillis();
+			long delay = now < pausedUntil
+					? pausedUntil - now
+					: (long) Math.ceil((1 - tokens) * 1000D / GLOBAL_REQUESTS_PER_SECOND);
+			RESET_EXECUTOR.schedule(() -> {
+				List<CompletableFuture<Void>> released = new ArrayList<>();
+				synchronized (this) {
+					drainScheduled = false;
+					while (!queue.isEmpty() && tryTakeToken()) {
+						released.add(queue.poll());
+					}
+					scheduleDrain();
+				}
+				completeAll(released);
+			}, Math.max(1, delay), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * A queue of waiting requests with one FIFO lane per {@link RequestPriority}. Not thread safe, it is guarded by the
+	 * monitor of the bucket which owns it.
+	 */
+	private static final class Lanes {
+
+		private final List<Queue<CompletableFuture<Void>>> lanes = new ArrayList<>();
+
+		private Lanes() {
+			for (RequestPriority ignored : RequestPriority.values()) {
+				lanes.add(new ArrayDeque<>());
+			}
+		}
+
+		void add(CompletableFuture<Void> future, RequestPriority priority) {
+			lanes.get(priority.ordinal()).add(future);
+		}
+
+		/**
+		 * Removes the oldest request of the highest priority.
+		 */
+		CompletableFuture<Void> poll() {
+			for (Queue<CompletableFuture<Void>> lane : lanes) {
+				if (!lane.isEmpty()) return lane.poll();
+			}
+			return null;
+		}
+
+		boolean isEmpty() {
+			return size() == 0;
+		}
+
+		int size() {
+			int size = 0;
+			for (Queue<CompletableFuture<Void>> lane : lanes) {
+				size += lane.size();
+			}
+			return size;
+		}
+	}
+}
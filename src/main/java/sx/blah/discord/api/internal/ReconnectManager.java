@@ -23,27 +23,30 @@ import sx.blah.discord.handle.impl.events.shard.ReconnectFailureEvent;
 import sx.blah.discord.handle.impl.events.shard.ReconnectSuccessEvent;
 import sx.blah.discord.util.LogMarkers;
 
-import java.util.LinkedList;
-import java.util.Queue;
-import java.util.concurrent.ExecutorService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Manages the reconnection process for all of the shards of a client. This ensures that shards obey the identify
- * ratelimit when reconnecting.
+ * Manages the reconnection process for all of the shards of a client. Shards reconnect in parallel, each with its own
+ * attempt count and backoff. A reconnect which resumes its session is not limited, while one which has to identify
+ * again waits for the client's {@link IdentifyLimiter} when it sends the IDENTIFY.
  */
 class ReconnectManager {
 
 	/**
-	 * The thread on which {@link DiscordWS#connect()} will be executed.
+	 * The threads on which {@link DiscordWS#connect()} is executed and backoffs are scheduled.
 	 */
-	private final ExecutorService reconnectExecutor = Executors.newSingleThreadExecutor(DiscordUtils.createDaemonThreadFactory("Reconnect Thread"));
+	private final ScheduledExecutorService reconnectExecutor = Executors.newScheduledThreadPool(
+			Math.max(2, Runtime.getRuntime().availableProcessors()), DiscordUtils.createDaemonThreadFactory("Reconnect Thread"));
 
 	/**
-	 * Queue of websockets waiting to be reconnected.
+	 * The reconnects in progress, keyed by the websocket which is reconnecting.
 	 */
-	private final Queue<DiscordWS> websockets = new LinkedList<>();
+	private final Map<DiscordWS, Reconnect> reconnects = new ConcurrentHashMap<>();
 
 	/**
 	 * The client associated with this manager.
@@ -55,110 +58,105 @@ class ReconnectManager {
 	 */
 	private final int maxAttempts;
 
-	/**
-	 * The current attempt being executed by the manager. [0, maxAttempts)
-	 */
-	private int curAttempt;
-
-	/**
-	 * If true, {@link #onReconnectError()} may be triggered by {@link DiscordWS#onWebSocketError(Throwable)}
-	 * This is used to ensure that {@link #onReconnectError()} is only called once per reconnect attempt.
-	 */
-	private boolean acknowledgeErrors = true;
-
 	ReconnectManager(IDiscordClient client, int maxAttempts) {
 		this.client = client;
 		this.maxAttempts = maxAttempts;
 	}
 
 	/**
-	 * Adds a {@link DiscordWS} to the reconnection queue.
-	 * If there is only one WS in the queue, the reconnection process will begin immediately.
+	 * Begins reconnecting a {@link DiscordWS}. Does nothing if it is already reconnecting.
 	 *
 	 * @param ws The websocket to reconnect.
 	 */
-	synchronized void scheduleReconnect(DiscordWS ws) {
-		websockets.offer(ws);
-		if (websockets.size() == 1) beginNewReconnect();
+	void scheduleReconnect(DiscordWS ws) {
+		Reconnect reconnect = new Reconnect();
+		if (reconnects.putIfAbsent(ws, reconnect) != null) return;
+
+		Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Beginning reconnect for shard {}.", ws.shard.getInfo()[0]);
+		performReconnect(ws, reconnect);
 	}
 
 	/**
-	 * Starts the reconnect process for the next websocket in the queue.
+	 * Calls {@link DiscordWS#connect()} for a reconnecting websocket.
 	 *
-	 * @throws IllegalStateException if the queue is empty.
+	 * @param ws The websocket to reconnect.
+	 * @param reconnect The state of the reconnect.
 	 */
-	private void beginNewReconnect() {
-		if (websockets.size() == 0) throw new IllegalStateException("Attempt to begin reconnect process with no websockets in queue.");
-
-		Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Beginning reconnect for shard {}.", websockets.peek().shard.getInfo()[0]);
-		performReconnect();
+	private void performReconnect(DiscordWS ws, Reconnect reconnect) {
+		Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Performing reconnect attempt {} for shard {}.", reconnect.attempt, ws.shard.getInfo()[0]);
+		reconnectExecutor.execute(() -> {
+			reconnect.acknowledgeErrors = true;
+			ws.connect();
+		});
 	}
 
 	/**
-	 * Calls {@link DiscordWS#connect()} for the current websocket in the queue.
+	 * Called by {@link DiscordWS} when it receives {@link GatewayOps#HELLO} which signals that a reconnect was
+	 * successful. Does nothing if the websocket isn't reconnecting.
+	 *
+	 * @param ws The websocket which connected.
 	 */
-	private void performReconnect() {
-		Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Performing reconnect attempt {} for shard {}.", curAttempt, websockets.peek().shard.getInfo()[0]);
-		reconnectExecutor.submit(() -> {
-			acknowledgeErrors = true;
-			websockets.peek().connect();
-		});
+	void onReconnectSuccess(DiscordWS ws) {
+		Reconnect reconnect = reconnects.remove(ws);
+		if (reconnect == null) return;
+
+		reconnect.acknowledgeErrors = false;
+		Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Reconnect for shard {} succeeded.", ws.shard.getInfo()[0]);
+		client.getDispatcher().dispatch(new ReconnectSuccessEvent(ws.shard));
 	}
 
 	/**
-	 * Called by {@link DiscordWS#onWebSocketText(String)} when it receives {@link GatewayOps#HELLO} which signals that a reconnect was successful.
-	 * The current websocket is removed from the queue and the reconnect process for the next one in the queue begins.
+	 * Called by {@link DiscordWS#onWebSocketError(Throwable)} for errors which may signify that a reconnect attempt
+	 * failed. If there are attempts remaining, the next one is scheduled according to {@link #getBackOffMillis(int)}.
+	 * If all attempts have been performed, the websocket is abandoned. Does nothing if the websocket isn't reconnecting
+	 * or the error was already handled for the current attempt.
+	 *
+	 * @param ws The websocket which encountered an error.
 	 */
-	void onReconnectSuccess() {
-		Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Reconnect for shard {} succeeded.", websockets.peek().shard.getInfo()[0]);
-		client.getDispatcher().dispatch(new ReconnectSuccessEvent(websockets.peek().shard));
-
-		acknowledgeErrors = false;
-		curAttempt = 0;
-		websockets.remove();
-
-		if (websockets.size() > 0) beginNewReconnect();
+	void onReconnectError(DiscordWS ws) {
+		Reconnect reconnect = reconnects.get(ws);
+		if (reconnect == null) return;
+		synchronized (reconnect) {
+			if (!reconnect.acknowledgeErrors) return;
+			reconnect.acknowledgeErrors = false;
+		}
+
+		client.getDispatcher().dispatch(new ReconnectFailureEvent(ws.shard, reconnect.attempt, maxAttempts));
+		if (reconnect.attempt == maxAttempts - 1) {
+			// abandon the ws
+			Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Reconnect for shard {} failed after {} attempts. Abandoning shard.", ws.shard.getInfo()[0], maxAttempts);
+			reconnects.remove(ws);
+			client.getShards().remove(ws.shard); // remove reference to the shard from the client. It is useless now.
+		} else {
+			long backOff = Math.max(1000, getBackOffMillis(reconnect.attempt));
+			Discord4J.LOGGER.debug(LogMarkers.RECONNECTS, "Retrying reconnect for shard {} in {} ms.", ws.shard.getInfo()[0], backOff);
+			reconnect.attempt++;
+			reconnectExecutor.schedule(() -> performReconnect(ws, reconnect), backOff, TimeUnit.MILLISECONDS);
+		}
 	}
 
 	/**
-	 * Called by {@link DiscordWS#onWebSocketError(Throwable)} for errors which signify that a reconnect attempt failed.
-	 * If there are attempts remaining, the the thread is blocked according to {@link #getBackOffMillis()} and the next attempt begins.
-	 * If all attempts have been performed, the current {@link DiscordWS} is abandoned and the reconnect process for the next one in the queue begins.
+	 * Gets the amount of time the manager should wait before performing the next reconnect attempt of a websocket.
+	 *
+	 * @param attempt The attempt which failed.
+	 * @return The amount of time to wait in milliseconds.
 	 */
-	void onReconnectError() {
-		if (!acknowledgeErrors) return;
-		acknowledgeErrors = false;
-
-		reconnectExecutor.submit(() -> {
-			client.getDispatcher().dispatch(new ReconnectFailureEvent(websockets.peek().shard, curAttempt, maxAttempts));
-			if (curAttempt == maxAttempts - 1) {
-				// abandon the ws
-				Discord4J.LOGGER.info(LogMarkers.RECONNECTS, "Reconnect for shard {} failed after {} attempts. Abandoning shard.", websockets.peek().shard.getInfo()[0], maxAttempts);
-				curAttempt = 0;
-				client.getShards().remove(websockets.peek().shard); // remove reference to the shard from the client. It is useless now.
-				websockets.remove();
-
-				// begin the next one
-				if (websockets.size() > 0) beginNewReconnect();
-			} else {
-				try {
-					long backOff = Math.max(1000, getBackOffMillis());
-					Discord4J.LOGGER.debug(LogMarkers.RECONNECTS, "Sleeping for {} ms.", backOff);
-					Thread.sleep(backOff);
-					curAttempt++;
-					performReconnect();
-				} catch (Exception e) {
-					Discord4J.LOGGER.error(LogMarkers.RECONNECTS, "Discord4J Internal Exception", e);
-				}
-			}
-		});
+	private long getBackOffMillis(int attempt) {
+		return (2 * attempt + ThreadLocalRandom.current().nextInt(0, 3)) * 1000;
 	}
 
 	/**
-	 * Gets the amount of time the manager should wait before performing the next reconnect attempt depending on {@link #curAttempt}
-	 * @return The amount of time to sleep in milliseconds.
+	 * The state of the reconnect of a single websocket.
 	 */
-	private long getBackOffMillis() {
-		return (2 * curAttempt + ThreadLocalRandom.current().nextInt(0, 3)) * 1000;
+	private static class Reconnect {
+		/**
+		 * The current attempt. [0, maxAttempts)
+		 */
+		volatile int attempt;
+		/**
+		 * If true, {@link #onReconnectError(DiscordWS)} may be triggered by {@link DiscordWS#onWebSocketError(Throwable)}.
+		 * This is used to ensure that it is only handled once per reconnect attempt.
+		 */
+		volatile boolean acknowledgeErrors = true;
 	}
 }
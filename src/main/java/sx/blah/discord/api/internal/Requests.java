@@ -18,26 +18,42 @@
 package sx.blah.discord.api.internal;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
-import org.apache.commons.lang3.tuple.Pair;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.*;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.RegistryBuilder;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.conn.socket.ConnectionSocketFactory;
+import org.apache.http.conn.socket.PlainConnectionSocketFactory;
+import org.apache.http.conn.ssl.SSLConnectionSocketFactory;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
 import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.nio.conn.ssl.SSLIOSessionStrategy;
+import org.apache.http.ssl.SSLContexts;
 import org.apache.http.util.EntityUtils;
 import sx.blah.discord.Discord4J;
 import sx.blah.discord.api.internal.json.responses.RateLimitResponse;
+import sx.blah.discord.util.BackoffRetryPolicy;
 import sx.blah.discord.util.DiscordException;
+import sx.blah.discord.util.IRetryPolicy;
 import sx.blah.discord.util.LogMarkers;
-import sx.blah.discord.util.RateLimitException;
+import sx.blah.discord.util.RequestBuffer;
+import sx.blah.discord.util.RequestPriority;
 
+import javax.net.ssl.SSLContext;
 import java.io.IOException;
-import java.lang.reflect.InvocationTargetException;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.atomic.AtomicLong;
+import java.io.InputStream;
+import java.util.concurrent.*;
+import java.util.function.Function;
 
 import static sx.blah.discord.Discord4J.*;
 
@@ -51,11 +67,39 @@ public class Requests {
 	 */
 	public static final String USER_AGENT = String.format("DiscordBot (%s, %s)", URL, VERSION);
 
+	/**
+	 * The default maximum number of pooled connections a Requests instance may open.
+	 */
+	public static final int DEFAULT_MAX_CONNECTIONS = 64;
+
+	/**
+	 * The default amount of time (in milliseconds) an idle pooled connection is kept alive for reuse.
+	 */
+	public static final long DEFAULT_KEEP_ALIVE = TimeUnit.SECONDS.toMillis(60);
+
+	/**
+	 * The SSL context shared by every connection pool so TLS sessions can be resumed instead of renegotiated.
+	 */
+	private static final SSLContext SSL_CONTEXT = SSLContexts.createDefault();
+
 	/**
 	 * A Requests instance that has no client associated with it.
 	 */
 	public static final Requests GENERAL_REQUESTS = new Requests(null);
 
+	/**
+	 * The executor on which asynchronous requests which received a 5xx response are rescheduled.
+	 */
+	private static final ScheduledExecutorService ASYNC_RETRY_EXECUTOR = Executors.newSingleThreadScheduledExecutor(
+			DiscordUtils.createDaemonThreadFactory("Async Request Retry Handler"));
+
+	/**
+	 * The executor on which responses to asynchronous requests are handled. This keeps deserialization, cache updates
+	 * and the callers' continuations off httpasyncclient's I/O reactor thread, which is shared by every in-flight
+	 * request. The number of threads is bounded, so a burst of completions queues up instead of starting a thread each.
+	 */
+	private static final ExecutorService ASYNC_CALLBACK_EXECUTOR = createCallbackExecutor();
+
 	/**
 	 * Used to send POST requests.
 	 */
@@ -82,18 +126,144 @@ public class Requests {
 	 */
 	private final DiscordClientImpl client;
 
+	/**
+	 * The maximum number of pooled connections.
+	 */
+	private final int maxConnections;
+
+	/**
+	 * The maximum number of pooled connections to a single host.
+	 */
+	private final int maxConnectionsPerRoute;
+
+	/**
+	 * The amount of time (in milliseconds) an idle pooled connection is kept alive for.
+	 */
+	private final long keepAlive;
+
+	/**
+	 * The HTTP client synchronous requests of every method are made on.
+	 */
+	private final CloseableHttpClient httpClient;
+
+	/**
+	 * The non-blocking HTTP client asynchronous requests are made on. This is lazily started by {@link #getAsyncClient()}
+	 * so that clients which never make asynchronous requests do not spawn I/O reactor threads.
+	 */
+	private volatile CloseableHttpAsyncClient asyncClient;
+
+	/**
+	 * Schedules every request made through this object so that it obeys Discord's rate limits.
+	 */
+	final RateLimiter rateLimiter = new RateLimiter();
+
+	/**
+	 * Decides whether and when requests which failed with a server error are retried.
+	 */
+	private final IRetryPolicy retryPolicy;
+
 	public Requests(DiscordClientImpl client) {
+		this(client, DEFAULT_MAX_CONNECTIONS, DEFAULT_MAX_CONNECTIONS, DEFAULT_KEEP_ALIVE, new BackoffRetryPolicy(0));
+	}
+
+	/**
+	 * @param client The client used for these requests.
+	 * @param maxConnections The maximum number of pooled connections.
+	 * @param maxConnectionsPerRoute The maximum number of pooled connections to a single host.
+	 * @param keepAlive The amount of time (in milliseconds) an idle pooled connection is kept alive for.
+	 * @param retryPolicy Decides whether and when requests which failed with a server error are retried.
+	 */
+	public Requests(DiscordClientImpl client, int maxConnections, int maxConnectionsPerRoute, long keepAlive,
+					IRetryPolicy retryPolicy) {
+		if (maxConnections < 1 || maxConnectionsPerRoute < 1)
+			throw new IllegalArgumentException("At least one connection must be allowed!");
+
 		this.client = client;
+		this.retryPolicy = retryPolicy;
+		this.maxConnections = maxConnections;
+		this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+		this.keepAlive = keepAlive;
+
+		PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(
+				RegistryBuilder.<ConnectionSocketFactory>create()
+						.register("http", PlainConnectionSocketFactory.getSocketFactory())
+						.register("https", new SSLConnectionSocketFactory(SSL_CONTEXT))
+						.build());
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+		this.httpClient = HttpClients.custom()
+				.setUserAgent(USER_AGENT)
+				.setConnectionManager(connectionManager)
+				.setKeepAliveStrategy(getKeepAliveStrategy())
+				.evictExpiredConnections()
+				.evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS)
+				.build();
+
+		POST = new Request("POST", HttpPost::new, true, client);
+		GET = new Request("GET", HttpGet::new, false, client);
+		DELETE = new Request("DELETE", HttpDelete::new, false, client);
+		PATCH = new Request("PATCH", HttpPatch::new, true, client);
+		PUT = new Request("PUT", HttpPut::new, true, client);
+	}
+
+	/**
+	 * Gets the non-blocking HTTP client used for asynchronous requests, starting it if necessary.
+	 *
+	 * @return The non-blocking HTTP client.
+	 */
+	private CloseableHttpAsyncClient getAsyncClient() {
+		CloseableHttpAsyncClient async = asyncClient;
+		if (async == null) {
+			synchronized (this) {
+				async = asyncClient;
+				if (async == null) {
+					async = HttpAsyncClients.custom()
+							.setUserAgent(USER_AGENT)
+							.setThreadFactory(DiscordUtils.createDaemonThreadFactory("Async Request Reactor"))
+							.setSSLStrategy(new SSLIOSessionStrategy(SSL_CONTEXT))
+							.setMaxConnTotal(maxConnections)
+							.setMaxConnPerRoute(maxConnectionsPerRoute)
+							.setKeepAliveStrategy(getKeepAliveStrategy())
+							.build();
+					async.start();
+					asyncClient = async;
+				}
+			}
+		}
+		return async;
+	}
 
-		POST = new Request(HttpPost.class, client);
-		GET = new Request(HttpGet.class, client);
-		DELETE = new Request(HttpDelete.class, client);
-		PATCH = new Request(HttpPatch.class, client);
-		PUT = new Request(HttpPut.class, client);
+	/**
+	 * Serializes an object as JSON directly into the bytes of an HTTP entity, without building an intermediate String.
+	 *
+	 * @param mapper The mapper to serialize the object with.
+	 * @param entity The object to serialize.
+	 * @return The HTTP entity containing the serialized object.
+	 */
+	public static HttpEntity toJsonEntity(ObjectMapper mapper, Object entity) {
+		try {
+			return new ByteArrayEntity(mapper.writeValueAsBytes(entity));
+		} catch (JsonProcessingException e) {
+			throw new DiscordException("Unable to serialize request!", e);
+		}
+	}
+
+	/**
+	 * Gets the strategy which keeps idle connections alive for as long as the server allows, up to the configured
+	 * keep alive time.
+	 *
+	 * @return The keep alive strategy.
+	 */
+	private ConnectionKeepAliveStrategy getKeepAliveStrategy() {
+		return (response, context) -> {
+			long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+			return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAlive) : keepAlive;
+		};
 	}
 
 	/**
-	 * A specific HTTP method request type.
+	 * A specific HTTP method request type. Requests are made with the {@link RequestPriority#current() priority} of
+	 * the calling thread.
 	 */
 	public final class Request {
 
@@ -103,28 +273,36 @@ public class Requests {
 		private final DiscordClientImpl client;
 
 		/**
-		 * The HTTP client requests are made on.
+		 * The name of the HTTP method.
 		 */
-		//Same as HttpClients.createDefault() but with the proper user-agent
-		private final CloseableHttpClient CLIENT = HttpClients.custom().setUserAgent(USER_AGENT).build();
+		private final String method;
 
 		/**
-		 * The class of the method type used for the request
+		 * Creates a request of this method type for a url.
 		 */
-		final Class<? extends HttpUriRequest> requestClass;
+		private final Function<String, HttpRequestBase> factory;
 
 		/**
-		 * Keeps track of the time when the global rate limit retry-after interval is over
+		 * Whether requests of this method type may have a body.
 		 */
-		private final AtomicLong globalRetryAfter = new AtomicLong(-1);
+		private final boolean acceptsEntity;
 
 		/**
-		 * Keeps track of per-method rate limits. Pair is method, path
+		 * Whether concurrent identical requests of this method type share a single HTTP call. Only safe for idempotent
+		 * methods.
 		 */
-		private final Map<Pair<String, String>, Long> retryAfters = new ConcurrentHashMap<>();
+		private final boolean coalesce;
 
-		private Request(Class<? extends HttpUriRequest> clazz, DiscordClientImpl client) {
-			this.requestClass = clazz;
+		/**
+		 * The in-flight requests which identical requests may join, keyed by response type and url.
+		 */
+		private final ConcurrentMap<String, CompletableFuture<Object>> inFlightRequests = new ConcurrentHashMap<>();
+
+		private Request(String method, Function<String, HttpRequestBase> factory, boolean acceptsEntity, DiscordClientImpl client) {
+			this.method = method;
+			this.factory = factory;
+			this.acceptsEntity = acceptsEntity;
+			this.coalesce = method.equals("GET");
 			this.client = client;
 		}
 
@@ -139,11 +317,22 @@ public class Requests {
 		 * @return The deserialized response.
 		 */
 		public <T> T makeRequest(String url, Object entity, Class<T> clazz, BasicNameValuePair... headers) {
-			try {
-				return makeRequest(url, DiscordUtils.MAPPER.writeValueAsString(entity), clazz, headers);
-			} catch (JsonProcessingException e) {
-				throw new DiscordException("Unable to serialize request!", e);
-			}
+			return makeRequest(url, toJsonEntity(DiscordUtils.MAPPER, entity), clazz, headers);
+		}
+
+		/**
+		 * Makes a request.
+		 *
+		 * @param url The url to make the request to.
+		 * @param entity The body of the request.
+		 * @param clazz The class of the object to deserialize the json response into.
+		 * @param headers The headers to include in the request.
+		 * @param <T> The type of the object to deserialize the json response into.
+		 * @return The deserialized response.
+		 */
+		public <T> T makeRequest(String url, HttpEntity entity, Class<T> clazz, BasicNameValuePair... headers) {
+			HttpUriRequest request = createRequest(url, entity, headers);
+			return request == null ? null : request(request, jsonReader(clazz));
 		}
 
 		/**
@@ -157,17 +346,15 @@ public class Requests {
 		 * @return The deserialized response.
 		 */
 		public <T> T makeRequest(String url, String entity, Class<T> clazz, BasicNameValuePair... headers) {
-			try {
-				String response = makeRequest(url, entity, headers);
-				return response == null ? null : DiscordUtils.MAPPER.readValue(response, clazz);
-			} catch (IOException e) {
-				throw new DiscordException("Unable to serialize request!", e);
-			}
+			return makeRequest(url, new StringEntity(entity, "UTF-8"), clazz, headers);
 		}
 
 		/**
 		 * Makes a request.
 		 *
+		 * <p>Concurrent identical GET requests without extra headers are joined onto a single HTTP call and share its
+		 * deserialized response.
+		 *
 		 * @param url The url to make the request to.
 		 * @param clazz The class of the object to deserialize the json response into.
 		 * @param headers The headers to include in the request.
@@ -175,11 +362,25 @@ public class Requests {
 		 * @return The deserialized response.
 		 */
 		public <T> T makeRequest(String url, Class<T> clazz, BasicNameValuePair... headers) {
+			HttpUriRequest request = createRequest(url, null, headers);
+			if (request == null) return null;
+			if (!coalesce || headers.length != 0) return request(request, jsonReader(clazz));
+
+			String key = clazz.getName() + " " + url;
+			CompletableFuture<Object> shared = new CompletableFuture<>();
+			CompletableFuture<Object> inFlight = inFlightRequests.putIfAbsent(key, shared);
+			if (inFlight != null)
+				return clazz.cast(join(inFlight));
+
 			try {
-				String response = makeRequest(url, headers);
-				return response == null ? null : DiscordUtils.MAPPER.readValue(response, clazz);
-			} catch (IOException e) {
-				throw new DiscordException("Unable to serialize request!", e);
+				T result = request(request, jsonReader(clazz));
+				shared.complete(result);
+				return result;
+			} catch (RuntimeException | Error e) {
+				shared.completeExceptionally(e);
+				throw e;
+			} finally {
+				inFlightRequests.remove(key, shared);
 			}
 		}
 
@@ -191,11 +392,7 @@ public class Requests {
 		 * @param headers The headers to include in the request.
 		 */
 		public void makeRequest(String url, Object entity, BasicNameValuePair... headers) {
-			try {
-				makeRequest(url, DiscordUtils.MAPPER.writeValueAsString(entity), headers);
-			} catch (IOException e) {
-				throw new DiscordException("Unable to serialize request!", e);
-			}
+			makeRequest(url, toJsonEntity(DiscordUtils.MAPPER, entity), headers);
 		}
 
 		/**
@@ -218,54 +415,364 @@ public class Requests {
 		 * @return The response as a byte array.
 		 */
 		public String makeRequest(String url, BasicNameValuePair... headers) {
+			HttpUriRequest request = createRequest(url, null, headers);
+			return request == null ? null : request(request, EntityUtils::toString);
+		}
+
+		/**
+		 * Makes a request.
+		 *
+		 * @param url The url to make the request to.
+		 * @param entity Any data to serialize and send in the body of the request.
+		 * @param headers The headers to include in the request.
+		 * @return The response as a byte array.
+		 */
+		public String makeRequest(String url, HttpEntity entity, BasicNameValuePair... headers) {
+			HttpUriRequest request = createRequest(url, entity, headers);
+			return request == null ? null : request(request, EntityUtils::toString);
+		}
+
+		/**
+		 * Makes a request without blocking the calling thread.
+		 *
+		 * @param url The url to make the request to.
+		 * @param entity Any data to serialize and send in the body of the request.
+		 * @param clazz The class of the object to deserialize the json response into.
+		 * @param headers The headers to include in the request.
+		 * @param <T> The type of the object to deserialize the json response into.
+		 * @return A future which is completed with the deserialized response.
+		 */
+		public <T> CompletableFuture<T> makeRequestAsync(String url, Object entity, Class<T> clazz, BasicNameValuePair... headers) {
 			try {
-				HttpUriRequest request = this.requestClass.getConstructor(String.class).newInstance(url);
-				for (BasicNameValuePair header : headers) {
-					request.addHeader(header.getName(), header.getValue());
+				return makeRequestAsync(url, toJsonEntity(DiscordUtils.MAPPER, entity), clazz, headers);
+			} catch (DiscordException e) {
+				return failedFuture(e);
+			}
+		}
+
+		/**
+		 * Makes a request without blocking the calling thread.
+		 *
+		 * @param url The url to make the request to.
+		 * @param entity The body of the request.
+		 * @param clazz The class of the object to deserialize the json response into.
+		 * @param headers The headers to include in the request.
+		 * @param <T> The type of the object to deserialize the json response into.
+		 * @return A future which is completed with the deserialized response.
+		 */
+		public <T> CompletableFuture<T> makeRequestAsync(String url, HttpEntity entity, Class<T> clazz, BasicNameValuePair... headers) {
+			HttpUriRequest request = createRequest(url, entity, headers);
+			return request == null ? CompletableFuture.completedFuture(null) : requestAsync(request, jsonReader(clazz));
+		}
+
+		/**
+		 * Makes a request without blocking the calling thread.
+		 *
+		 * @param url The url to make the request to.
+		 * @param entity Any data to serialize and send in the body of the request.
+		 * @param clazz The class of the object to deserialize the json response into.
+		 * @param headers The headers to include in the request.
+		 * @param <T> The type of the object to deserialize the json response into.
+		 * @return A future which is completed with the deserialized response.
+		 */
+		public <T> CompletableFuture<T> makeRequestAsync(String url, String entity, Class<T> clazz, BasicNameValuePair... headers) {
+			return makeRequestAsync(url, new StringEntity(entity, "UTF-8"), clazz, headers);
+		}
+
+		/**
+		 * Makes a request without blocking the calling thread.
+		 *
+		 * <p>Concurrent identical GET requests without extra headers are joined onto a single HTTP call and share its
+		 * deserialized response.
+		 *
+		 * @param url The url to make the request to.
+		 * @param clazz The class of the object to deserialize the json response into.
+		 * @param headers The headers to include in the request.
+		 * @param <T> The type of the object to deserialize the json response into.
+		 * @return A future which is completed with the deserialized response.
+		 */
+		public <T> CompletableFuture<T> makeRequestAsync(String url, Class<T> clazz, BasicNameValuePair... headers) {
+			HttpUriRequest request = createRequest(url, null, headers);
+			if (request == null) return CompletableFuture.completedFuture(null);
+			if (!coalesce || headers.length != 0) return requestAsync(request, jsonReader(clazz));
+
+			String key = clazz.getName() + " " + url;
+			CompletableFuture<Object> shared = new CompletableFuture<>();
+			CompletableFuture<Object> inFlight = inFlightRequests.putIfAbsent(key, shared);
+			if (inFlight != null)
+				return inFlight.thenApply(clazz::cast);
+
+			requestAsync(request, jsonReader(clazz)).whenComplete((result, e) -> {
+				inFlightRequests.remove(key, shared);
+				if (e == null) {
+					shared.complete(result);
+				} else {
+					shared.completeExceptionally(e);
 				}
+			});
+			return shared.thenApply(clazz::cast); // callers get a dependent future so they cannot complete the shared one
+		}
 
-				return request(request);
-			} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException e) {
-				Discord4J.LOGGER.error(LogMarkers.API, "Discord4J Internal Exception", e);
-				return null;
+		/**
+		 * Makes a request without blocking the calling thread.
+		 *
+		 * @param url The url to make the request to.
+		 * @param entity Any data to serialize and send in the body of the request.
+		 * @param headers The headers to include in the request.
+		 * @return A future which is completed when the request is complete.
+		 */
+		public CompletableFuture<Void> makeRequestAsync(String url, Object entity, BasicNameValuePair... headers) {
+			try {
+				return makeRequestAsync(url, toJsonEntity(DiscordUtils.MAPPER, entity), headers).thenApply(response -> null);
+			} catch (DiscordException e) {
+				return failedFuture(e);
 			}
 		}
 
+		/**
+		 * Makes a request without blocking the calling thread.
+		 *
+		 * @param url The url to make the request to.
+		 * @param entity Any data to serialize and send in the body of the request.
+		 * @param headers The headers to include in the request.
+		 * @return A future which is completed with the response text.
+		 */
+		public CompletableFuture<String> makeRequestAsync(String url, String entity, BasicNameValuePair... headers) {
+			return makeRequestAsync(url, new StringEntity(entity, "UTF-8"), headers);
+		}
+
+		/**
+		 * Makes a request without blocking the calling thread.
+		 *
+		 * @param url The url to make the request to.
+		 * @param headers The headers to include in the request.
+		 * @return A future which is completed with the response text.
+		 */
+		public CompletableFuture<String> makeRequestAsync(String url, BasicNameValuePair... headers) {
+			HttpUriRequest request = createRequest(url, null, headers);
+			return request == null ? CompletableFuture.completedFuture(null) : requestAsync(request, EntityUtils::toString);
+		}
 
 		/**
-		 * Makes a request.
+		 * Makes a request without blocking the calling thread.
 		 *
 		 * @param url The url to make the request to.
 		 * @param entity Any data to serialize and send in the body of the request.
 		 * @param headers The headers to include in the request.
-		 * @return The response as a byte array.
+		 * @return A future which is completed with the response text.
 		 */
-		public String makeRequest(String url, HttpEntity entity, BasicNameValuePair... headers) {
+		public CompletableFuture<String> makeRequestAsync(String url, HttpEntity entity, BasicNameValuePair... headers) {
+			HttpUriRequest request = createRequest(url, entity, headers);
+			return request == null ? CompletableFuture.completedFuture(null) : requestAsync(request, EntityUtils::toString);
+		}
+
+		/**
+		 * Creates the HTTP request object for this method type.
+		 *
+		 * @param url The url to make the request to.
+		 * @param entity The body of the request. May be null.
+		 * @param headers The headers to include in the request.
+		 * @return The request object, or null if it could not be created.
+		 */
+		private HttpUriRequest createRequest(String url, HttpEntity entity, BasicNameValuePair[] headers) {
+			if (entity != null && !acceptsEntity) {
+				LOGGER.error(LogMarkers.API, "Tried to attach HTTP entity to invalid type! ({})", method);
+				return null;
+			}
+
+			HttpRequestBase request = factory.apply(url);
+			for (BasicNameValuePair header : headers) {
+				request.addHeader(header.getName(), header.getValue());
+			}
+			if (entity != null)
+				((HttpEntityEnclosingRequestBase) request).setEntity(entity);
+			return request;
+		}
+
+		/**
+		 * Waits for an identical in-flight request to complete.
+		 *
+		 * @param inFlight The future of the in-flight request.
+		 * @return The deserialized response of the in-flight request.
+		 */
+		private Object join(CompletableFuture<Object> inFlight) {
 			try {
-				if (HttpEntityEnclosingRequestBase.class.isAssignableFrom(this.requestClass)) {
-					HttpEntityEnclosingRequestBase request = (HttpEntityEnclosingRequestBase)
-							this.requestClass.getConstructor(String.class).newInstance(url);
-					for (BasicNameValuePair header : headers) {
-						request.addHeader(header.getName(), header.getValue());
+				return inFlight.get();
+			} catch (InterruptedException e) {
+				throw new DiscordException("Interrupted while waiting for an identical request to complete!", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause() instanceof CompletionException && e.getCause().getCause() != null
+						? e.getCause().getCause() : e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				throw new DiscordException("Identical request failed!", cause);
+			}
+		}
+
+		/**
+		 * Gets a reader which deserializes a successful response body straight from its stream.
+		 */
+		private <T> ResponseReader<T> jsonReader(Class<T> clazz) {
+			return entity -> {
+				try (InputStream content = entity.getContent()) {
+					return DiscordUtils.MAPPER.readValue(content, clazz);
+				}
+			};
+		}
+
+		private <T> T request(HttpUriRequest request, ResponseReader<T> reader) {
+			return request(request, reader, new Attempt(RequestPriority.current()));
+		}
+
+		private <T> T request(HttpUriRequest request, ResponseReader<T> reader, Attempt attempt) {
+			String bucket = prepare(request);
+			checkCircuit(request, bucket);
+
+			CompletableFuture<Void> permit = RequestBuffer.claimPermit(bucket);
+			if (permit == null) {
+				CompletableFuture<Void> acquired = rateLimiter.acquire(bucket, attempt.priority);
+				if (!acquired.isDone()) // Buffered requests give up their thread instead of waiting
+					RequestBuffer.deferUntilPermitted(bucket, acquired, () -> rateLimiter.abandon(bucket, acquired));
+				permit = acquired;
+			}
+			try {
+				permit.get();
+			} catch (InterruptedException | ExecutionException e) {
+				rateLimiter.abandon(bucket, permit);
+				throw new DiscordException("Interrupted while waiting for a rate limit to expire!", e);
+			}
+
+			boolean permitReturned = false;
+			try (CloseableHttpResponse response = httpClient.execute(request)) {
+				if (hasContent(response)) {
+					permitReturned = true;
+					onResponse(bucket, response, null);
+					retryPolicy.onSuccess(bucket);
+					return read(reader, response);
+				}
+
+				String data = response.getEntity() == null ? null : EntityUtils.toString(response.getEntity());
+				permitReturned = true;
+				onResponse(bucket, response, data);
+
+				if (isRateLimited(response))
+					return request(request, reader, attempt);
+
+				if (isRetryable(response, data)) {
+					long delay = getRetryDelay(bucket, attempt, response);
+					try {
+						Thread.sleep(delay);
+					} catch (InterruptedException e) {
+						throw new DiscordException("Interrupted while waiting to retry a 5xx response!", e);
 					}
-					request.setEntity(entity);
-					return request(request);
-				} else {
-					LOGGER.error(LogMarkers.API, "Tried to attach HTTP entity to invalid type! ({})", this.requestClass.getSimpleName());
+					return request(request, reader, attempt.next(delay));
 				}
-			} catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException | InstantiationException e) {
+
+				retryPolicy.onSuccess(bucket);
+				handleResponse(request, response, data);
+				return null;
+			} catch (IOException e) {
 				Discord4J.LOGGER.error(LogMarkers.API, "Discord4J Internal Exception", e);
+				return null;
+			} finally {
+				if (!permitReturned) {
+					rateLimiter.release(bucket);
+					retryPolicy.onFailure(bucket);
+				}
 			}
-			return null;
 		}
 
-		private String request(HttpUriRequest request) {
-			return request(request, 1, client == null ? 0 : client.getRetryCount());
+		private <T> CompletableFuture<T> requestAsync(HttpUriRequest request, ResponseReader<T> reader) {
+			CompletableFuture<T> future = new CompletableFuture<>();
+			requestAsync(request, reader, new Attempt(RequestPriority.current()), future);
+			return future;
+		}
+
+		private <T> void requestAsync(HttpUriRequest request, ResponseReader<T> reader, Attempt attempt, CompletableFuture<T> future) {
+			String bucket = prepare(request);
+			try {
+				checkCircuit(request, bucket);
+			} catch (DiscordException e) {
+				future.completeExceptionally(e);
+				return;
+			}
+
+			rateLimiter.acquire(bucket, attempt.priority).thenRun(() -> getAsyncClient().execute(request, new FutureCallback<HttpResponse>() {
+				@Override
+				public void completed(HttpResponse response) {
+					ASYNC_CALLBACK_EXECUTOR.execute(() -> {
+						boolean permitReturned = false;
+						try {
+							if (hasContent(response)) {
+								permitReturned = true;
+								onResponse(bucket, response, null);
+								retryPolicy.onSuccess(bucket);
+								future.complete(read(reader, response));
+								return;
+							}
+
+							String data = response.getEntity() == null ? null : EntityUtils.toString(response.getEntity());
+							permitReturned = true;
+							onResponse(bucket, response, data);
+
+							if (isRateLimited(response)) {
+								requestAsync(request, reader, attempt, future);
+								return;
+							}
+
+							if (isRetryable(response, data)) {
+								long delay = getRetryDelay(bucket, attempt, response);
+								ASYNC_RETRY_EXECUTOR.schedule(() -> ASYNC_CALLBACK_EXECUTOR.execute(
+										() -> requestAsync(request, reader, attempt.next(delay), future)),
+										delay, TimeUnit.MILLISECONDS);
+								return;
+							}
+
+							retryPolicy.onSuccess(bucket);
+							handleResponse(request, response, data);
+							future.complete(null);
+						} catch (Exception e) {
+							if (!permitReturned) {
+								rateLimiter.release(bucket);
+								retryPolicy.onFailure(bucket);
+							}
+							future.completeExceptionally(e);
+						}
+					});
+				}
+
+				@Override
+				public void failed(Exception e) {
+					ASYNC_CALLBACK_EXECUTOR.execute(() -> {
+						rateLimiter.release(bucket);
+						retryPolicy.onFailure(bucket);
+						future.completeExceptionally(new DiscordException("Unable to make request to " + request.getURI(), e));
+					});
+				}
+
+				@Override
+				public void cancelled() {
+					ASYNC_CALLBACK_EXECUTOR.execute(() -> {
+						rateLimiter.release(bucket);
+						future.cancel(false);
+					});
+				}
+			})).exceptionally(e -> {
+				rateLimiter.release(bucket);
+				future.completeExceptionally(e);
+				return null;
+			});
 		}
 
-		private String request(HttpUriRequest request, long sleepTime, int retry) {
+		/**
+		 * Adds the standard headers to a request.
+		 *
+		 * @param request The request to prepare.
+		 * @return The rate limit bucket of the request.
+		 */
+		private String prepare(HttpUriRequest request) {
 			if (client != null)
-				request.addHeader("Authorization", client.getToken());
+				request.setHeader("Authorization", client.getToken());
 
 			if (request.containsHeader("Content-Type")) {
 				if (request.getFirstHeader("Content-Type").getValue().equals("multipart/form-data")) {
@@ -275,83 +782,165 @@ public class Requests {
 				request.addHeader("Content-Type", "application/json; charset=utf-8");
 			}
 
-			if (globalRetryAfter.get() != -1) {
-				if (System.currentTimeMillis() > globalRetryAfter.get())
-					globalRetryAfter.set(-1);
-				else
-					throw new RateLimitException("Global rate limit exceeded.",
-							globalRetryAfter.get() - System.currentTimeMillis(), request.getMethod(), true);
+			return RateLimiter.getBucket(request.getMethod(), request.getURI().getPath());
+		}
+
+		/**
+		 * Returns the request's rate limit permit and records the rate limit information of the response. The permit is
+		 * returned even if the body of a 429 response can't be parsed.
+		 */
+		private void onResponse(String bucket, HttpResponse response, String data) throws IOException {
+			try {
+				if (isRateLimited(response)) {
+					RateLimitResponse rateLimitResponse = DiscordUtils.MAPPER.readValue(data, RateLimitResponse.class);
+					rateLimiter.onRateLimited(bucket, rateLimitResponse.retry_after, rateLimitResponse.global);
+				}
+			} finally {
+				rateLimiter.update(bucket, response);
 			}
+		}
 
-			Pair<String, String> methodRequestPair = Pair.of(request.getMethod(), request.getURI().getPath());
+		/**
+		 * Gets whether a response was successful and has a body which should be passed to the response reader.
+		 */
+		private boolean hasContent(HttpResponse response) {
+			int responseCode = response.getStatusLine().getStatusCode();
+			return responseCode >= 200 && responseCode < 300 && responseCode != 204 && response.getEntity() != null;
+		}
 
-			if (retryAfters.containsKey(methodRequestPair)) {
-				if (System.currentTimeMillis() > retryAfters.get(methodRequestPair))
-					retryAfters.remove(methodRequestPair);
-				else
-					throw new RateLimitException("Rate limit exceeded.",
-							retryAfters.get(methodRequestPair) - System.currentTimeMillis(),
-							String.format("%s %s", methodRequestPair.getLeft(), methodRequestPair.getRight()), false);
+		/**
+		 * Reads the body of a successful response.
+		 *
+		 * @throws DiscordException If the body could not be read.
+		 */
+		private <T> T read(ResponseReader<T> reader, HttpResponse response) {
+			try {
+				return reader.read(response.getEntity());
+			} catch (IOException e) {
+				throw new DiscordException("Unable to deserialize response!", e);
 			}
+		}
 
-			try (CloseableHttpResponse response = CLIENT.execute(request)) {
-				int responseCode = response.getStatusLine().getStatusCode();
+		private boolean isRateLimited(HttpResponse response) {
+			return response.getStatusLine().getStatusCode() == 429;
+		}
 
-				if (response.containsHeader("X-RateLimit-Remaining")) {
-					int remaining = Integer.parseInt(response.getFirstHeader("X-RateLimit-Remaining").getValue());
-					if (remaining == 0) {
-						retryAfters.put(methodRequestPair,
-								Long.parseLong(response.getFirstHeader("X-RateLimit-Reset").getValue()) * 1000);
-					}
-				}
+		/**
+		 * Gets whether a response indicates a transient failure on Discord's end which should be retried.
+		 */
+		private boolean isRetryable(HttpResponse response, String data) {
+			int responseCode = response.getStatusLine().getStatusCode();
+			return (responseCode >= 500 && responseCode < 600) || (responseCode == 400 && data != null && data.contains("cloudflare"));
+		}
 
-				String data = null;
-				if (response.getEntity() != null)
-					data = EntityUtils.toString(response.getEntity());
-
-				if (responseCode == 404) {
-					if (!request.getURI().toString().contains("invite") && !request.getURI().toString().contains("messages") && !request.getURI().toString().contains("users")) //Suppresses common 404s which are a result on queries to verify if something exists or not
-						LOGGER.error(LogMarkers.API, "Received 404 error, please notify the developer and include the URL ({})", request.getURI());
-					return null;
-				} else if (responseCode == 403) {
-					LOGGER.error(LogMarkers.API, "Received 403 forbidden error for url {}. If you believe this is a Discord4J error, report this!", request.getURI());
-					return null;
-				} else if (responseCode == 204) { //There is a no content response when deleting messages
-					return null;
-				} else if ((responseCode >= 500 && responseCode < 600) || (responseCode == 400 && data != null && data.contains("cloudflare"))) {
-					if (retry == 0)
-						throw new DiscordException(String.format("Failed to make a %s failed request after %s tries!",
-								responseCode, client == null ? 0 : client.getRetryCount()));
-					try {
-						Thread.sleep(sleepTime);
-					} catch (InterruptedException e) {
-						throw new DiscordException("Interrupted while waiting to retry a 5xx response!", e);
-					}
-					return request(request, (long) (Math.pow(sleepTime, 2) * ThreadLocalRandom.current().nextLong(5)), retry - 1);
+		/**
+		 * Fails a request immediately if the retry policy does not currently allow requests to its route.
+		 *
+		 * @throws DiscordException If the request is not allowed.
+		 */
+		private void checkCircuit(HttpUriRequest request, String bucket) {
+			if (!retryPolicy.allowRequest(bucket))
+				throw new DiscordException("Not attempting request to " + request.getURI() + " as requests to " + bucket + " are failing.");
+		}
 
-				} else if ((responseCode < 200 || responseCode > 299) && responseCode != 429) {
-					throw new DiscordException("Error on request to " + request.getURI() + ". Received response code " + responseCode + ". With response text: " + data);
-				}
+		/**
+		 * Records a failed attempt with the retry policy and gets how long to wait before retrying it.
+		 *
+		 * @return The delay (in milliseconds) before the request is retried.
+		 * @throws DiscordException If the request should not be retried.
+		 */
+		private long getRetryDelay(String bucket, Attempt attempt, HttpResponse response) {
+			retryPolicy.onFailure(bucket);
+			long delay = retryPolicy.getRetryDelay(bucket, attempt.number,
+					System.currentTimeMillis() - attempt.startTime, attempt.previousDelay);
+			if (delay < 0)
+				throw new DiscordException(String.format("Failed to make a %s failed request after %s tries!",
+						response.getStatusLine().getStatusCode(), attempt.number));
+			return delay;
+		}
 
-				if (responseCode == 429) {
-					RateLimitResponse rateLimitResponse = DiscordUtils.MAPPER.readValue(data, RateLimitResponse.class);
+		/**
+		 * Handles a response from Discord which has no content and is neither rate limited nor retryable.
+		 *
+		 * @param request The request the response is for.
+		 * @param response The response.
+		 * @param data The body of the response.
+		 * @throws DiscordException If Discord responded with an error.
+		 */
+		private void handleResponse(HttpUriRequest request, HttpResponse response, String data) {
+			int responseCode = response.getStatusLine().getStatusCode();
+
+			if (responseCode == 404) {
+				if (!request.getURI().toString().contains("invite") && !request.getURI().toString().contains("messages") && !request.getURI().toString().contains("users")) //Suppresses common 404s which are a result on queries to verify if something exists or not
+					LOGGER.error(LogMarkers.API, "Received 404 error, please notify the developer and include the URL ({})", request.getURI());
+			} else if (responseCode == 403) {
+				LOGGER.error(LogMarkers.API, "Received 403 forbidden error for url {}. If you believe this is a Discord4J error, report this!", request.getURI());
+			} else if (responseCode < 200 || responseCode > 299) { //There is a no content response (204) when deleting messages
+				throw new DiscordException("Error on request to " + request.getURI() + ". Received response code " + responseCode + ". With response text: " + data);
+			}
+		}
+	}
 
-					if (rateLimitResponse.global) {
-						globalRetryAfter.set(System.currentTimeMillis() + rateLimitResponse.retry_after);
-					} else {
-						retryAfters.put(methodRequestPair, System.currentTimeMillis() + rateLimitResponse.retry_after);
-					}
+	/**
+	 * The retry state of a request.
+	 */
+	private static final class Attempt {
 
-					throw new RateLimitException(rateLimitResponse.message, rateLimitResponse.retry_after,
-							String.format("%s %s", methodRequestPair.getLeft(), methodRequestPair.getRight()),
-							rateLimitResponse.global);
-				}
+		private final RequestPriority priority;
+		/**
+		 * The number of this attempt, starting at 1.
+		 */
+		private final int number;
+		/**
+		 * The time (in epoch milliseconds) the request was first attempted.
+		 */
+		private final long startTime;
+		/**
+		 * The delay (in milliseconds) before this attempt, or 0 if this is the first attempt.
+		 */
+		private final long previousDelay;
 
-				return data;
-			} catch (IOException e) {
-				Discord4J.LOGGER.error(LogMarkers.API, "Discord4J Internal Exception", e);
-				return null;
-			}
+		private Attempt(RequestPriority priority) {
+			this(priority, 1, System.currentTimeMillis(), 0);
 		}
+
+		private Attempt(RequestPriority priority, int number, long startTime, long previousDelay) {
+			this.priority = priority;
+			this.number = number;
+			this.startTime = startTime;
+			this.previousDelay = previousDelay;
+		}
+
+		/**
+		 * Gets the attempt which follows this one after the given delay.
+		 */
+		private Attempt next(long delay) {
+			return new Attempt(priority, number + 1, startTime, delay);
+		}
+	}
+
+	/**
+	 * Reads the body of a successful response into the type requested by the caller.
+	 */
+	@FunctionalInterface
+	private interface ResponseReader<T> {
+		T read(HttpEntity entity) throws IOException;
+	}
+
+	/**
+	 * Creates the executor for {@link #ASYNC_CALLBACK_EXECUTOR}. Its threads exit after a minute without work.
+	 */
+	private static ExecutorService createCallbackExecutor() {
+		int threads = Runtime.getRuntime().availableProcessors() * 4;
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<>(), DiscordUtils.createDaemonThreadFactory("Async Request Callback Handler"));
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private static <T> CompletableFuture<T> failedFuture(Throwable t) {
+		CompletableFuture<T> future = new CompletableFuture<>();
+		future.completeExceptionally(t);
+		return future;
 	}
 }
@@ -20,12 +20,15 @@ package sx.blah.discord.api.internal;
 import sx.blah.discord.Discord4J;
 import sx.blah.discord.api.IDiscordClient;
 import sx.blah.discord.api.IShard;
+import sx.blah.discord.api.IShardMetrics;
 import sx.blah.discord.api.internal.json.objects.ChannelObject;
 import sx.blah.discord.api.internal.json.objects.UserObject;
 import sx.blah.discord.api.internal.json.requests.PresenceUpdateRequest;
 import sx.blah.discord.api.internal.json.requests.PrivateChannelCreateRequest;
 import sx.blah.discord.handle.impl.events.shard.DisconnectedEvent;
 import sx.blah.discord.handle.impl.events.user.PresenceUpdateEvent;
+import sx.blah.discord.handle.impl.obj.Channel;
+import sx.blah.discord.handle.impl.obj.Guild;
 import sx.blah.discord.handle.impl.obj.Presence;
 import sx.blah.discord.handle.impl.obj.User;
 import sx.blah.discord.handle.obj.*;
@@ -33,6 +36,7 @@ import sx.blah.discord.util.DiscordException;
 import sx.blah.discord.util.LogMarkers;
 import sx.blah.discord.util.RequestBuffer;
 import sx.blah.discord.util.cache.Cache;
+import sx.blah.discord.util.cache.SnowflakeIndex;
 
 import java.util.LinkedList;
 import java.util.List;
@@ -74,6 +78,14 @@ public class ShardImpl implements IShard {
 	 * The voice gateways for guilds on this shard.
 	 */
 	public final Cache<DiscordVoiceWS> voiceWebSockets;
+	/**
+	 * The index of the users, roles, channels and messages stored in the guilds on this shard.
+	 */
+	public final SnowflakeIndex index = new SnowflakeIndex();
+	/**
+	 * The health metrics of the shard's gateway connection.
+	 */
+	final ShardMetrics metrics = new ShardMetrics();
 
 	private final PresenceUpdateRequest identifyPresence;
 
@@ -101,6 +113,7 @@ public class ShardImpl implements IShard {
 	public void login() {
 		Discord4J.LOGGER.trace(LogMarkers.API, "Shard logging in.");
 		this.ws = new DiscordWS(this, gateway, client.maxMissedPings, identifyPresence);
+		this.ws.restoreSession();
 		this.ws.connect();
 	}
 
@@ -134,6 +147,11 @@ public class ShardImpl implements IShard {
 		return ws.heartbeatHandler.getAckResponseTime();
 	}
 
+	@Override
+	public IShardMetrics getMetrics() {
+		return metrics;
+	}
+
 	@Override
 	public void changePresence(StatusType status, ActivityType activity, String text) {
 		if (activity == ActivityType.STREAMING) throw new IllegalArgumentException("Invalid ActivityType");
@@ -190,7 +208,7 @@ public class ShardImpl implements IShard {
 
 	@Override
 	public IChannel getChannelByID(long id) {
-		IChannel channel = guildCache.findResult((guildID, guild) -> guild.getChannelByID(id));
+		IChannel channel = index.get(id, IChannel.class);
 
 		return channel == null ? privateChannels.get(id) : channel;
 	}
@@ -210,7 +228,7 @@ public class ShardImpl implements IShard {
 
 	@Override
 	public IVoiceChannel getVoiceChannelByID(long id) {
-		return guildCache.findResult((guildID, guild) -> guild.getVoiceChannelByID(id));
+		return index.get(id, IVoiceChannel.class);
 	}
 
 	@Override
@@ -225,14 +243,11 @@ public class ShardImpl implements IShard {
 
 	@Override
 	public List<IUser> getUsers() {
-		List<IUser> guildUserList = guildCache.stream()
-				.map(IGuild::getUsers)
-				.flatMap(List::stream)
-				.distinct()
-				.collect(Collectors.toList());
+		List<IUser> guildUserList = index.values(IUser.class);
 
-		if (client.getOurUser() != null && !guildUserList.contains(client.getOurUser()))
-			guildUserList.add(client.getOurUser());
+		IUser ourUser = client.getOurUser();
+		if (ourUser != null && index.get(ourUser.getLongID(), IUser.class) == null)
+			guildUserList.add(ourUser);
 
 		return guildUserList;
 	}
@@ -241,7 +256,7 @@ public class ShardImpl implements IShard {
 	public IUser getUserByID(long userID) {
 		IUser ourUser = getClient().getOurUser();
 		if (ourUser != null && userID == ourUser.getLongID()) return ourUser;
-		return guildCache.findResult((guildID, guild) -> guild.getUserByID(userID));
+		return index.get(userID, IUser.class);
 	}
 
 	@Override
@@ -260,7 +275,7 @@ public class ShardImpl implements IShard {
 
 	@Override
 	public IRole getRoleByID(long roleID) {
-		return guildCache.findResult((guildID, guild) -> guild.getRoleByID(roleID));
+		return index.get(roleID, IRole.class);
 	}
 
 	@Override
@@ -278,7 +293,11 @@ public class ShardImpl implements IShard {
 
 	@Override
 	public IMessage getMessageByID(long messageID) {
-		IMessage message = guildCache.findResult((guildID, guild) -> guild.getMessageByID(messageID));
+		IMessage message = index.get(messageID, IMessage.class);
+		if (message == null) // Only search the message caches which are not indexed, such as off-heap ones
+			message = guildCache.findResult((guildID, guild) ->
+					((Guild) guild).channels.findResult((channelID, channel) ->
+							((Channel) channel).messages.isIndexed() ? null : channel.getMessageByID(messageID)));
 		if (message == null)
 			message = privateChannels.findResult((channelID, channel) -> channel.getMessageByID(messageID));
 		return message;
@@ -314,6 +333,22 @@ public class ShardImpl implements IShard {
 
 	@Override
 	public ICategory getCategoryByID(long categoryID) {
-		return guildCache.findResult((guildId, guild) -> guild.getCategoryByID(categoryID));
+		return index.get(categoryID, ICategory.class);
+	}
+
+	/**
+	 * Removes the users, roles, channels and messages of a guild which is no longer on this shard from the
+	 * {@link #index}. The guild's caches are left intact for anything which still holds a reference to it.
+	 *
+	 * @param guild The guild to remove.
+	 */
+	void unindex(Guild guild) {
+		guild.users.forEach((id, user) -> ((User) user).removeGuild(guild.getLongID()));
+		guild.users.unindex();
+		guild.roles.unindex();
+		guild.channels.forEach((id, channel) -> ((Channel) channel).messages.unindex());
+		guild.channels.unindex();
+		guild.voiceChannels.unindex();
+		guild.categories.unindex();
 	}
 }
@@ -0,0 +1,92 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import sx.blah.discord.api.IShardMetrics;
+import sx.blah.discord.util.Histogram;
+import sx.blah.discord.util.Meter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The implementation of {@link IShardMetrics}. It is recorded to by the shard's gateway connection.
+ */
+class ShardMetrics implements IShardMetrics {
+
+	private final Histogram heartbeatLatency = new Histogram();
+	private final AtomicInteger pendingDispatches = new AtomicInteger();
+	private final Map<String, Meter> dispatches = new ConcurrentHashMap<>();
+	private final Meter payloadBytesReceived = new Meter();
+	private final Meter payloadBytesSent = new Meter();
+	private final Histogram inflateTime = new Histogram();
+	private final Histogram parseTime = new Histogram();
+
+	@Override
+	public Histogram getHeartbeatLatency() {
+		return heartbeatLatency;
+	}
+
+	@Override
+	public int getPendingDispatches() {
+		return pendingDispatches.get();
+	}
+
+	@Override
+	public Map<String, Meter> getDispatches() {
+		return Collections.unmodifiableMap(dispatches);
+	}
+
+	@Override
+	public Meter getPayloadBytesReceived() {
+		return payloadBytesReceived;
+	}
+
+	@Override
+	public Meter getPayloadBytesSent() {
+		return payloadBytesSent;
+	}
+
+	@Override
+	public Histogram getInflateTime() {
+		return inflateTime;
+	}
+
+	@Override
+	public Histogram getParseTime() {
+		return parseTime;
+	}
+
+	/**
+	 * Records that a dispatch was received and is waiting to be handled.
+	 *
+	 * @param type The event name of the dispatch.
+	 */
+	void onDispatchReceived(String type) {
+		if (type != null) dispatches.computeIfAbsent(type, t -> new Meter()).mark();
+		pendingDispatches.incrementAndGet();
+	}
+
+	/**
+	 * Records that a received dispatch was handled or dropped.
+	 */
+	void onDispatchHandled() {
+		pendingDispatches.decrementAndGet();
+	}
+}
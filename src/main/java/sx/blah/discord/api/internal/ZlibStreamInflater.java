@@ -0,0 +1,131 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Decompresses the payloads of a gateway connection which uses {@code compress=zlib-stream} transport compression.
+ *
+ * <p>The whole connection is a single zlib stream, so one {@link Inflater} lives as long as the connection. A payload
+ * may be split across several websocket messages and is only complete once the data ends with the zlib
+ * {@code SYNC_FLUSH} suffix. Decompressed payloads are written to a reusable buffer which is handed straight to the JSON
+ * parser.
+ *
+ * <p>This class is not thread safe. It is only used from the websocket's read thread.
+ *
+ * @see <a href=https://discordapp.com/developers/docs/topics/gateway#transport-compression>Transport Compression</a>
+ */
+class ZlibStreamInflater {
+
+	/**
+	 * The initial size of the decompression buffer.
+	 */
+	private static final int DEFAULT_BUFFER_SIZE = 16 * 1024;
+
+	/**
+	 * The largest decompression buffer kept between payloads. Larger buffers (needed for large GUILD_CREATEs) are
+	 * released after use so a shard does not hold on to its largest payload forever.
+	 */
+	private static final int MAX_RETAINED_BUFFER_SIZE = 1024 * 1024;
+
+	private final Inflater inflater = new Inflater();
+
+	/**
+	 * Compressed data of a payload which was split across multiple websocket messages.
+	 */
+	private byte[] pending = new byte[0];
+	private int pendingLength = 0;
+
+	/**
+	 * The buffer payloads are decompressed into.
+	 */
+	private byte[] output = new byte[DEFAULT_BUFFER_SIZE];
+
+	/**
+	 * Feeds a websocket message to the inflater.
+	 *
+	 * @param data The array containing the message.
+	 * @param offset The offset of the message in the array.
+	 * @param length The length of the message.
+	 * @return The length of the decompressed payload in {@link #getOutput()}, or -1 if the payload is not complete yet.
+	 * @throws DataFormatException If the data is not a valid zlib stream.
+	 */
+	int inflate(byte[] data, int offset, int length) throws DataFormatException {
+		if (pendingLength == 0 && isFlushed(data, offset, length))
+			return inflateComplete(data, offset, length);
+
+		if (pendingLength + length > pending.length)
+			pending = Arrays.copyOf(pending, Math.max(pendingLength + length, pending.length * 2));
+		System.arraycopy(data, offset, pending, pendingLength, length);
+		pendingLength += length;
+
+		if (!isFlushed(pending, 0, pendingLength))
+			return -1;
+
+		int inflated = inflateComplete(pending, 0, pendingLength);
+		pendingLength = 0;
+		if (pending.length > MAX_RETAINED_BUFFER_SIZE)
+			pending = new byte[0];
+		return inflated;
+	}
+
+	/**
+	 * Gets the buffer containing the last decompressed payload. It is overwritten by the next call to
+	 * {@link #inflate(byte[], int, int)}.
+	 *
+	 * @return The buffer containing the last decompressed payload.
+	 */
+	byte[] getOutput() {
+		return output;
+	}
+
+	/**
+	 * Releases the native resources of the inflater. It may not be used afterwards.
+	 */
+	void close() {
+		inflater.end();
+	}
+
+	private int inflateComplete(byte[] data, int offset, int length) throws DataFormatException {
+		if (output.length > MAX_RETAINED_BUFFER_SIZE)
+			output = new byte[DEFAULT_BUFFER_SIZE];
+
+		inflater.setInput(data, offset, length);
+		int total = 0;
+		while (true) {
+			if (total == output.length)
+				output = Arrays.copyOf(output, output.length * 2);
+
+			total += inflater.inflate(output, total, output.length - total);
+			if ((total < output.length && inflater.needsInput()) || inflater.finished() || inflater.needsDictionary())
+				return total;
+		}
+	}
+
+	/**
+	 * Gets whether the data ends with the zlib SYNC_FLUSH suffix ({@code 00 00 ff ff}), marking the end of a payload.
+	 */
+	private static boolean isFlushed(byte[] data, int offset, int length) {
+		int end = offset + length;
+		return length >= 4 && data[end - 4] == 0x00 && data[end - 3] == 0x00
+				&& data[end - 2] == (byte) 0xFF && data[end - 1] == (byte) 0xFF;
+	}
+}
@@ -31,4 +31,8 @@ public class MessageDeleteBulkEventResponse {
 	 * The ID of the channel the messages belonged to.
 	 */
 	public String channel_id;
+	/**
+	 * The ID of the guild the messages belonged to.
+	 */
+	public String guild_id;
 }
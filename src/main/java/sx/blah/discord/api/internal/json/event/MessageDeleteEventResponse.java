@@ -31,6 +31,10 @@ public class MessageDeleteEventResponse {
 	 * The ID of the channel the message belonged to.
 	 */
 	public String channel_id;
+	/**
+	 * The ID of the guild the message belonged to, or null if it is a private channel.
+	 */
+	public String guild_id;
 
 	public MessageDeleteEventResponse() {}
 
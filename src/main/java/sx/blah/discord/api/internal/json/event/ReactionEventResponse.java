@@ -39,4 +39,8 @@ public class ReactionEventResponse {
 	 * The ID of the channel.
 	 */
 	public String channel_id;
+	/**
+	 * The ID of the guild, or null if it is a private channel.
+	 */
+	public String guild_id;
 }
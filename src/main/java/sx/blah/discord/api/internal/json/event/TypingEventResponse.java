@@ -36,4 +36,8 @@ public class TypingEventResponse {
 	 * The ID of the channel where the user is typing.
 	 */
 	public String channel_id;
+	/**
+	 * The ID of the guild where the user is typing, or null if it is a private channel.
+	 */
+	public String guild_id;
 }
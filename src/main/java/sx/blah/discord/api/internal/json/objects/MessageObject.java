@@ -33,6 +33,10 @@ public class MessageObject {
 	 * The channel ID for the channel this message was sent in.
 	 */
 	public String channel_id;
+	/**
+	 * The ID of the guild the message was sent in. This is only included in gateway events of guild messages.
+	 */
+	public String guild_id;
 	/**
 	 * The author of the message.
 	 */
@@ -0,0 +1,39 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal.json.objects;
+
+/**
+ * Represents a json session start limit object.
+ */
+public class SessionStartLimitObject {
+	/**
+	 * The total number of sessions which may be started in the current period.
+	 */
+	public int total;
+	/**
+	 * The remaining number of sessions which may be started in the current period.
+	 */
+	public int remaining;
+	/**
+	 * The number of milliseconds until the current period resets.
+	 */
+	public long reset_after;
+	/**
+	 * The number of shards which may identify at the same time.
+	 */
+	public int max_concurrency;
+}
@@ -48,7 +48,11 @@ public class IdentifyRequest {
 	private final PresenceUpdateRequest presence;
 
 	public IdentifyRequest(String token, int[] shard, PresenceUpdateRequest presence) {
-		this(token, new Properties(), true, 250, shard, presence);
+		this(token, shard, presence, true);
+	}
+
+	public IdentifyRequest(String token, int[] shard, PresenceUpdateRequest presence, boolean compress) {
+		this(token, new Properties(), compress, 250, shard, presence);
 	}
 
 	private IdentifyRequest(String token, Properties properties, boolean compress, int large_threshold, int[] shard, PresenceUpdateRequest presence) {
@@ -17,6 +17,8 @@
 
 package sx.blah.discord.api.internal.json.responses;
 
+import sx.blah.discord.api.internal.json.objects.SessionStartLimitObject;
+
 /**
  * Received when requesting the websocket URL with recommended shard count.
  */
@@ -25,4 +27,8 @@ public class GatewayBotResponse extends GatewayResponse {
 	 * The recommended number of shards to connect with.
 	 */
 	public int shards;
+	/**
+	 * The limits on starting new sessions.
+	 */
+	public SessionStartLimitObject session_start_limit;
 }
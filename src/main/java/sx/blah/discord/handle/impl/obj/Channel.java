@@ -28,6 +28,8 @@ import sx.blah.discord.api.IShard;
 import sx.blah.discord.api.internal.DiscordClientImpl;
 import sx.blah.discord.api.internal.DiscordEndpoints;
 import sx.blah.discord.api.internal.DiscordUtils;
+import sx.blah.discord.api.internal.Requests;
+import sx.blah.discord.api.internal.ShardImpl;
 import sx.blah.discord.api.internal.json.objects.*;
 import sx.blah.discord.api.internal.json.requests.*;
 import sx.blah.discord.handle.impl.events.guild.channel.webhook.WebhookCreateEvent;
@@ -42,6 +44,7 @@ import java.io.*;
 import java.time.Instant;
 import java.time.Period;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -142,7 +145,7 @@ public class Channel implements IChannel {
 		this.roleOverrides = roleOverrides;
 		this.userOverrides = userOverrides;
 		this.isNSFW = isNSFW;
-		this.messages = new Cache<>(client, IMessage.class);
+		this.messages = guild == null ? new Cache<>(client, IMessage.class) : new Cache<>(client, IMessage.class, ((ShardImpl) guild.getShard()).index);
 		this.webhooks = new Cache<>(client, IWebhook.class);
 		this.categoryID = categoryID;
 	}
@@ -463,15 +466,10 @@ public class Channel implements IChannel {
 			PermissionUtils.requirePermissions(this, client.getOurUser(), Permissions.EMBED_LINKS);
 		}
 
-		MessageObject response = null;
-		try {
-			response = client.REQUESTS.POST.makeRequest(
-					DiscordEndpoints.CHANNELS+id+"/messages",
-					DiscordUtils.MAPPER_NO_NULLS.writeValueAsString(new MessageRequest(content, embed, tts)),
-					MessageObject.class);
-		} catch (JsonProcessingException e) {
-			Discord4J.LOGGER.error(LogMarkers.HANDLE, "Discord4J Internal Exception", e);
-		}
+		MessageObject response = client.REQUESTS.POST.makeRequest(
+				DiscordEndpoints.CHANNELS+id+"/messages",
+				Requests.toJsonEntity(DiscordUtils.MAPPER_NO_NULLS, new MessageRequest(content, embed, tts)),
+				MessageObject.class);
 
 		if (response == null || response.id == null) //Message didn't send
 			throw new DiscordException("Message was unable to be sent (Discord didn't return a response).");
@@ -479,6 +477,35 @@ public class Channel implements IChannel {
 		return DiscordUtils.getMessageFromJSON(this, response);
 	}
 
+	@Override
+	public CompletableFuture<IMessage> sendMessageAsync(String content) {
+		return sendMessageAsync(content, null, false);
+	}
+
+	@Override
+	public CompletableFuture<IMessage> sendMessageAsync(EmbedObject embed) {
+		return sendMessageAsync(null, embed, false);
+	}
+
+	@Override
+	public CompletableFuture<IMessage> sendMessageAsync(String content, EmbedObject embed, boolean tts) {
+		getShard().checkReady("send message");
+		PermissionUtils.requirePermissions(this, client.getOurUser(), Permissions.SEND_MESSAGES);
+
+		if (embed != null) {
+			PermissionUtils.requirePermissions(this, client.getOurUser(), Permissions.EMBED_LINKS);
+		}
+
+		HttpEntity request = Requests.toJsonEntity(DiscordUtils.MAPPER_NO_NULLS, new MessageRequest(content, embed, tts));
+		return client.REQUESTS.POST.makeRequestAsync(DiscordEndpoints.CHANNELS+id+"/messages", request, MessageObject.class)
+				.thenApply(response -> {
+					if (response == null || response.id == null) //Message didn't send
+						throw new DiscordException("Message was unable to be sent (Discord didn't return a response).");
+
+					return DiscordUtils.getMessageFromJSON(this, response);
+				});
+	}
+
 	@Override
 	public IMessage sendFile(File file) throws FileNotFoundException {
 		return sendFile((String) null, file);
@@ -24,6 +24,7 @@ import sx.blah.discord.api.IShard;
 import sx.blah.discord.api.internal.DiscordClientImpl;
 import sx.blah.discord.api.internal.DiscordEndpoints;
 import sx.blah.discord.api.internal.DiscordUtils;
+import sx.blah.discord.api.internal.ShardImpl;
 import sx.blah.discord.api.internal.json.objects.*;
 import sx.blah.discord.api.internal.json.objects.audit.AuditLogEntryObject;
 import sx.blah.discord.api.internal.json.objects.audit.AuditLogObject;
@@ -39,11 +40,13 @@ import sx.blah.discord.handle.impl.events.guild.channel.webhook.WebhookUpdateEve
 import sx.blah.discord.handle.obj.*;
 import sx.blah.discord.util.*;
 import sx.blah.discord.util.cache.Cache;
+import sx.blah.discord.util.cache.LongMap;
 
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Function;
 import java.util.stream.Collectors;
@@ -68,10 +71,46 @@ public class Guild implements IGuild {
 	 */
 	public final Cache<IUser> users;
 
+	/**
+	 * The guild-specific data of each member, keyed by user ID. Use {@link #putMember(User, Member)} and
+	 * {@link #removeMember(User)} to modify it.
+	 */
+	public final Cache<Member> members;
+
 	/**
 	 * The timestamps of when users joined the guild.
+	 *
+	 * @deprecated Join times are stored in the {@link Member} records of {@link #members}. This cache is a view of
+	 * those records which rebuilds its contents on every read.
 	 */
-	public final Cache<TimeStampHolder> joinTimes;
+	@Deprecated
+	public final Cache<TimeStampHolder> joinTimes = new Cache<>(new MemberDataCacheDelegate<TimeStampHolder>() {
+		@Override
+		LongMap<TimeStampHolder> snapshot() {
+			LongMap<TimeStampHolder> joinTimes = LongMap.newMap();
+			members.forEach((userID, member) -> {
+				if (member.getJoinTime() != null) joinTimes.put(userID, new TimeStampHolder(userID, member.getJoinTime()));
+			});
+			return joinTimes;
+		}
+
+		@Override
+		void store(TimeStampHolder joinTime) {
+			Member member = members.get(joinTime.getLongID());
+			Member updated = member == null
+					? new Member(joinTime.getLongID(), new long[] {id}, null, joinTime.getObject())
+					: new Member(member.getLongID(), member.getRoleIDs(), member.getNick(), joinTime.getObject());
+			IUser user = users.get(joinTime.getLongID());
+			if (user instanceof User) putMember((User) user, updated);
+			else members.put(updated);
+		}
+
+		@Override
+		void delete(long userID) {
+			Member member = members.get(userID);
+			if (member != null) members.put(new Member(userID, member.getRoleIDs(), member.getNick(), null));
+		}
+	});
 
 	public final Cache<ICategory> categories;
 
@@ -162,14 +201,17 @@ public class Guild implements IGuild {
 
 	public Guild(IShard shard, String name, long id, String icon, long ownerID, long afkChannel, int afkTimeout, String region, int verification, long systemChannelId) {
 		this(shard, name, id, icon, ownerID, afkChannel, afkTimeout, region, verification, systemChannelId,
-				new Cache<>((DiscordClientImpl) shard.getClient(), IRole.class), new Cache<>((DiscordClientImpl) shard.getClient(), IChannel.class),
-				new Cache<>((DiscordClientImpl) shard.getClient(), IVoiceChannel.class), new Cache<>((DiscordClientImpl) shard.getClient(), IUser.class),
-				new Cache<>((DiscordClientImpl) shard.getClient(), TimeStampHolder.class), new Cache<>((DiscordClientImpl) shard.getClient(), ICategory.class));
+				new Cache<>((DiscordClientImpl) shard.getClient(), IRole.class, ((ShardImpl) shard).index),
+				new Cache<>((DiscordClientImpl) shard.getClient(), IChannel.class, ((ShardImpl) shard).index),
+				new Cache<>((DiscordClientImpl) shard.getClient(), IVoiceChannel.class, ((ShardImpl) shard).index),
+				new Cache<>((DiscordClientImpl) shard.getClient(), IUser.class, ((ShardImpl) shard).index),
+				new Cache<>((DiscordClientImpl) shard.getClient(), Member.class),
+				new Cache<>((DiscordClientImpl) shard.getClient(), ICategory.class, ((ShardImpl) shard).index));
 	}
 
 	public Guild(IShard shard, String name, long id, String icon, long ownerID, long afkChannel, int afkTimeout,
 				 String region, int verification, long systemChannelId, Cache<IRole> roles, Cache<IChannel> channels,
-				 Cache<IVoiceChannel> voiceChannels, Cache<IUser> users, Cache<TimeStampHolder> joinTimes, Cache<ICategory> categories) {
+				 Cache<IVoiceChannel> voiceChannels, Cache<IUser> users, Cache<Member> members, Cache<ICategory> categories) {
 		this.shard = shard;
 		this.client = shard.getClient();
 		this.name = name;
@@ -178,7 +220,7 @@ public class Guild implements IGuild {
 		this.users = users;
 		this.id = id;
 		this.icon = icon;
-		this.joinTimes = joinTimes;
+		this.members = members;
 		this.iconURL = String.format(DiscordEndpoints.ICONS, this.id, this.icon);
 		this.ownerID = ownerID;
 		this.roles = roles;
@@ -289,8 +331,14 @@ public class Guild implements IGuild {
 
 	@Override
 	public List<IUser> getUsersByRole(IRole role) {
+		if (getRoleByID(role.getLongID()) == null)
+			return new ArrayList<>();
+
 		return users.stream()
-				.filter(user -> user.getRolesForGuild(this).contains(role))
+				.filter(user -> {
+					Member member = ((User) user).getMember(this);
+					return member != null && member.hasRole(role.getLongID());
+				})
 				.collect(Collectors.toList());
 	}
 
@@ -466,6 +514,33 @@ public class Guild implements IGuild {
 
 	@Override
 	public void banUser(long userID, String reason, int deleteMessagesForDays) {
+		String url = getBanURL(userID, reason, deleteMessagesForDays);
+		if (url != null)
+			((DiscordClientImpl) client).REQUESTS.PUT.makeRequest(url);
+	}
+
+	@Override
+	public CompletableFuture<Void> banUserAsync(IUser user) {
+		return banUserAsync(user.getLongID(), null, 0);
+	}
+
+	@Override
+	public CompletableFuture<Void> banUserAsync(long userID, String reason, int deleteMessagesForDays) {
+		String url = getBanURL(userID, reason, deleteMessagesForDays);
+		if (url == null)
+			return CompletableFuture.completedFuture(null);
+		return ((DiscordClientImpl) client).REQUESTS.PUT.makeRequestAsync(url).thenApply(response -> null);
+	}
+
+	/**
+	 * Checks that the bot is allowed to ban the given user and builds the url of the ban request.
+	 *
+	 * @param userID The snowflake ID of the user to ban.
+	 * @param reason The reason for banning.
+	 * @param deleteMessagesForDays The number of days to delete messages from this user for.
+	 * @return The url of the ban request (or null if the reason could not be encoded).
+	 */
+	private String getBanURL(long userID, String reason, int deleteMessagesForDays) {
 		IUser user = getUserByID(userID);
 		if (getUserByID(userID) == null) {
 			PermissionUtils.requirePermissions(this, client.getOurUser(), Permissions.BAN);
@@ -476,10 +551,11 @@ public class Guild implements IGuild {
 			throw new IllegalArgumentException("Reason length cannot be more than " + Ban.MAX_REASON_LENGTH);
 		}
 		try {
-			((DiscordClientImpl) client).REQUESTS.PUT.makeRequest(DiscordEndpoints.GUILDS + getStringID() + "/bans/" + Long.toUnsignedString(userID) + "?delete-message-days=" + deleteMessagesForDays + (reason == null ? "" : ("&reason=" +
-					URLEncoder.encode(reason, "UTF-8"))));
+			return DiscordEndpoints.GUILDS + getStringID() + "/bans/" + Long.toUnsignedString(userID) + "?delete-message-days=" + deleteMessagesForDays + (reason == null ? "" : ("&reason=" +
+					URLEncoder.encode(reason, "UTF-8")));
 		} catch (UnsupportedEncodingException e) {
 			e.printStackTrace();
+			return null;
 		}
 	}
 
@@ -774,12 +850,35 @@ public class Guild implements IGuild {
 		return audioManager;
 	}
 
+	/**
+	 * Stores the guild-specific data of a member.
+	 *
+	 * @param user The user the data belongs to.
+	 * @param member The guild-specific data.
+	 */
+	public void putMember(User user, Member member) {
+		members.put(member);
+		user.addGuild(id);
+	}
+
+	/**
+	 * Removes the guild-specific data of a member.
+	 *
+	 * @param user The user the data belongs to.
+	 * @return The removed data, or null if the user had none.
+	 */
+	public Member removeMember(User user) {
+		user.removeGuild(id);
+		return members.remove(user.getLongID());
+	}
+
 	@Override
 	public Instant getJoinTimeForUser(IUser user) {
-		if (!joinTimes.containsKey(user.getLongID()))
+		Member member = members.get(user.getLongID());
+		if (member == null || member.getJoinTime() == null)
 			throw new DiscordException("Cannot find user "+user.getDisplayName(this)+" in this guild!");
 
-		return joinTimes.get(user.getLongID()).getObject();
+		return member.getJoinTime();
 	}
 
 	@Override
@@ -821,7 +920,7 @@ public class Guild implements IGuild {
 	public IGuild copy() {
 		return new Guild(shard, name, id, icon, ownerID, afkChannel, afkTimeout, regionID, verification.ordinal(),
 				systemChannelId, roles.copy(), channels.copy(), voiceChannels.copy(), users.copy(),
-				joinTimes.copy(), categories.copy());
+				members.copy(), categories.copy());
 	}
 
 	@Override
@@ -1070,11 +1169,110 @@ public class Guild implements IGuild {
 
 	/**
 	 * Associates a user ID to their join time.
+	 *
+	 * @deprecated Join times are stored in {@link Member} records. See {@link #joinTimes}.
 	 */
+	@Deprecated
 	public static class TimeStampHolder extends IDLinkedObjectWrapper<Instant> {
 
 		public TimeStampHolder(long id, Instant obj) {
 			super(id, obj);
 		}
 	}
+
+	/**
+	 * The guild-specific data of a member: their roles, nickname and join time. The user object itself is shared
+	 * between every guild the user is in, so only this record is stored per guild.
+	 *
+	 * <p>Members are immutable. Changes are made by putting a modified copy into {@link #members}, which keeps copies
+	 * of the guild unaffected.
+	 */
+	public static final class Member implements IIDLinkedObject {
+
+		/**
+		 * The ID of the user.
+		 */
+		private final long userID;
+		/**
+		 * The sorted IDs of the roles the member has, including the @everyone role.
+		 */
+		private final long[] roleIDs;
+		/**
+		 * The member's nickname, or null if they do not have one.
+		 */
+		private final String nick;
+		/**
+		 * When the member joined the guild, or null if it is unknown.
+		 */
+		private final Instant joinTime;
+
+		public Member(long userID, long[] roleIDs, String nick, Instant joinTime) {
+			this.userID = userID;
+			this.roleIDs = roleIDs;
+			this.nick = nick;
+			this.joinTime = joinTime;
+		}
+
+		@Override
+		public long getLongID() {
+			return userID;
+		}
+
+		/**
+		 * Gets the sorted IDs of the roles the member has. The returned array must not be modified.
+		 *
+		 * @return The IDs of the roles the member has.
+		 */
+		public long[] getRoleIDs() {
+			return roleIDs;
+		}
+
+		/**
+		 * Gets whether the member has the role with the given ID.
+		 *
+		 * @param roleID The ID of the role.
+		 * @return Whether the member has the role.
+		 */
+		public boolean hasRole(long roleID) {
+			return Arrays.binarySearch(roleIDs, roleID) >= 0;
+		}
+
+		/**
+		 * Gets the member's nickname.
+		 *
+		 * @return The member's nickname, or null if they do not have one.
+		 */
+		public String getNick() {
+			return nick;
+		}
+
+		/**
+		 * Gets when the member joined the guild.
+		 *
+		 * @return When the member joined the guild, or null if it is unknown.
+		 */
+		public Instant getJoinTime() {
+			return joinTime;
+		}
+
+		/**
+		 * Creates a copy of the member with different roles.
+		 *
+		 * @param roleIDs The sorted IDs of the roles the member has.
+		 * @return The modified copy.
+		 */
+		public Member withRoles(long[] roleIDs) {
+			return new Member(userID, roleIDs, nick, joinTime);
+		}
+
+		/**
+		 * Creates a copy of the member with a different nickname.
+		 *
+		 * @param nick The member's nickname.
+		 * @return The modified copy.
+		 */
+		public Member withNick(String nick) {
+			return new Member(userID, roleIDs, nick, joinTime);
+		}
+	}
 }
@@ -0,0 +1,141 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.handle.impl.obj;
+
+import com.koloboke.collect.set.LongSet;
+import com.koloboke.function.LongObjConsumer;
+import com.koloboke.function.LongObjFunction;
+import com.koloboke.function.LongObjPredicate;
+import sx.blah.discord.handle.obj.IIDLinkedObject;
+import sx.blah.discord.util.cache.Cache;
+import sx.blah.discord.util.cache.ICacheDelegate;
+import sx.blah.discord.util.cache.LongMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Optional;
+
+/**
+ * A cache delegate which presents data stored in {@link Guild.Member} records, or in another lazily allocated store, in
+ * the shape of one of the caches the records replaced. Reads build the objects from the current records and writes are
+ * applied to the records.
+ *
+ * <p>This only backs deprecated fields and every read does as much work as the number of records it covers, so it
+ * should not be used by Discord4J itself.
+ *
+ * @param <T> The type of object the delegate presents.
+ */
+abstract class MemberDataCacheDelegate<T extends IIDLinkedObject> implements ICacheDelegate<T> {
+
+	/**
+	 * Builds the objects from the current records.
+	 *
+	 * @return A new map of the objects keyed by their IDs.
+	 */
+	abstract LongMap<T> snapshot();
+
+	/**
+	 * Applies an object to the records.
+	 *
+	 * @param obj The object to apply.
+	 */
+	abstract void store(T obj);
+
+	/**
+	 * Removes the data of an object from the records.
+	 *
+	 * @param id The ID of the object.
+	 */
+	abstract void delete(long id);
+
+	private ICacheDelegate<T> view() {
+		return new Cache.MapCacheDelegate<>(snapshot());
+	}
+
+	@Override
+	public Optional<T> retrieve(long id) {
+		return Optional.ofNullable(snapshot().get(id));
+	}
+
+	@Override
+	public Optional<T> put(T obj) {
+		Optional<T> previous = retrieve(obj.getLongID());
+		store(obj);
+		return previous;
+	}
+
+	@Override
+	public Optional<T> remove(long id) {
+		Optional<T> previous = retrieve(id);
+		if (previous.isPresent()) delete(id);
+		return previous;
+	}
+
+	@Override
+	public Collection<T> clear() {
+		Collection<T> cleared = new ArrayList<>(snapshot().values());
+		cleared.forEach(obj -> delete(obj.getLongID()));
+		return cleared;
+	}
+
+	@Override
+	public int size() {
+		return snapshot().size();
+	}
+
+	@Override
+	public LongSet longIDs() {
+		return view().longIDs();
+	}
+
+	@Override
+	public Collection<T> values() {
+		return view().values();
+	}
+
+	@Override
+	public Iterator<T> iterator() {
+		return view().iterator();
+	}
+
+	@Override
+	public ICacheDelegate<T> copy() {
+		return view();
+	}
+
+	@Override
+	public LongMap<T> mapCopy() {
+		return snapshot();
+	}
+
+	@Override
+	public void forEach(LongObjConsumer<? super T> action) {
+		snapshot().forEach(action);
+	}
+
+	@Override
+	public boolean forEachWhile(LongObjPredicate<? super T> predicate) {
+		return snapshot().forEachWhile(predicate);
+	}
+
+	@Override
+	public <Z> Z findResult(LongObjFunction<? super T, ? extends Z> function) {
+		return view().findResult(function);
+	}
+}
@@ -29,6 +29,7 @@ import sx.blah.discord.util.cache.Cache;
 import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * The default implementation of {@link IPrivateChannel}.
@@ -53,6 +54,12 @@ public class PrivateChannel extends Channel implements IPrivateChannel {
 		return super.sendMessage(content, embed, tts);
 	}
 
+	@Override
+	public CompletableFuture<IMessage> sendMessageAsync(String content, EmbedObject embed, boolean tts) {
+		if (recipient.isBot()) throw new DiscordException("Bots may not DM other bots.");
+		return super.sendMessageAsync(content, embed, tts);
+	}
+
 	@Override
 	public IMessage sendFiles(String content, boolean tts, EmbedObject embed, AttachmentPartEntry... entries) {
 		if (recipient.isBot()) throw new DiscordException("Bots may not DM other bots.");
@@ -35,14 +35,14 @@ import sx.blah.discord.util.cache.LongMap;
 
 import java.awt.Color;
 import java.util.*;
-import java.util.concurrent.CopyOnWriteArraySet;
-import java.util.stream.Collectors;
 
 /**
  * The default implementation of {@link IUser}.
  */
 public class User implements IUser {
 
+	private static final long[] NO_IDS = new long[0];
+
 	/**
 	 * The unique snowflake ID of the user.
 	 */
@@ -87,20 +87,114 @@ public class User implements IUser {
 	 */
 	protected volatile String avatarURL;
 
+	/**
+	 * The guild-specific data of a {@link #copy() copied} user, keyed by guild ID. Live users read it from
+	 * {@link Guild#members} instead, so this is null for them. The map is replaced rather than modified.
+	 */
+	private volatile LongMap<Guild.Member> memberSnapshot;
+
+	/**
+	 * The sorted IDs of the guilds which have a {@link Guild.Member} record for the user. This lets {@link #copy()}
+	 * find the user's records without searching every guild. The array is replaced rather than modified.
+	 */
+	private volatile long[] guildIDs = NO_IDS;
+
 	/**
 	 * The roles the user has in each guild.
+	 *
+	 * @deprecated Roles are stored in the {@link Guild.Member} record of each guild, use {@link #getMember(IGuild)}
+	 * instead. This cache is a view of those records which rebuilds its contents on every read. Changes made to the
+	 * role collections it returns are not written back, put a new holder instead.
 	 */
-	public final Cache<RolesHolder> roles;
+	@Deprecated
+	public final Cache<RolesHolder> roles = new Cache<>(new MemberDataCacheDelegate<RolesHolder>() {
+		@Override
+		LongMap<RolesHolder> snapshot() {
+			LongMap<RolesHolder> roles = LongMap.newMap();
+			getMembers().forEach((guildID, member) -> {
+				IGuild guild = shard == null ? null : shard.getGuildByID(guildID);
+				if (guild != null) roles.put(guildID, new RolesHolder(guildID, getRolesForGuild(guild)));
+			});
+			return roles;
+		}
+
+		@Override
+		void store(RolesHolder roles) {
+			long[] roleIDs = roles.getObject().stream()
+					.filter(Objects::nonNull)
+					.mapToLong(IRole::getLongID)
+					.sorted().distinct().toArray();
+			Guild.Member member = getMember(roles.getLongID());
+			setMember(roles.getLongID(), member == null ? new Guild.Member(id, roleIDs, null, null) : member.withRoles(roleIDs));
+		}
+
+		@Override
+		void delete(long guildID) {
+			Guild.Member member = getMember(guildID);
+			if (member != null) setMember(guildID, member.withRoles(NO_IDS));
+		}
+	});
 
 	/**
 	 * The nickname the user has in each guild.
+	 *
+	 * @deprecated Nicknames are stored in the {@link Guild.Member} record of each guild, use
+	 * {@link #getMember(IGuild)} instead. This cache is a view of those records which rebuilds its contents on every
+	 * read.
+	 */
+	@Deprecated
+	public final Cache<NickHolder> nicks = new Cache<>(new MemberDataCacheDelegate<NickHolder>() {
+		@Override
+		LongMap<NickHolder> snapshot() {
+			LongMap<NickHolder> nicks = LongMap.newMap();
+			getMembers().forEach((guildID, member) -> {
+				if (member.getNick() != null) nicks.put(guildID, new NickHolder(guildID, member.getNick()));
+			});
+			return nicks;
+		}
+
+		@Override
+		void store(NickHolder nick) {
+			addNick(nick.getLongID(), nick.getObject());
+		}
+
+		@Override
+		void delete(long guildID) {
+			Guild.Member member = getMember(guildID);
+			if (member != null) setMember(guildID, member.withNick(null));
+		}
+	});
+
+	/**
+	 * The voice state the user has in each guild. This is only allocated once a voice state is stored, see
+	 * {@link #getVoiceStateCache()}.
 	 */
-	public final Cache<NickHolder> nicks;
+	private volatile Cache<IVoiceState> voiceStateCache;
 
 	/**
 	 * The voice state the user has in each guild.
+	 *
+	 * @deprecated The voice states are only allocated once one is stored, use {@link #getVoiceStateCache()} instead.
+	 * This cache is a view of that cache which copies its contents on every read.
 	 */
-	public final Cache<IVoiceState> voiceStates;
+	@Deprecated
+	public final Cache<IVoiceState> voiceStates = new Cache<>(new MemberDataCacheDelegate<IVoiceState>() {
+		@Override
+		LongMap<IVoiceState> snapshot() {
+			return getVoiceStates();
+		}
+
+		@Override
+		void store(IVoiceState voiceState) {
+			getVoiceStateCache().put(voiceState);
+		}
+
+		@Override
+		void delete(long guildID) {
+			Cache<IVoiceState> voiceStates = voiceStateCache;
+			if (voiceStates != null) voiceStates.remove(guildID);
+		}
+	});
 
 	public User(IShard shard, String name, long id, String discriminator, String avatar, IPresence presence, boolean isBot) {
 		this(shard, shard == null ? null : shard.getClient(), name, id, discriminator, avatar, presence, isBot);
@@ -115,9 +209,6 @@ public class User implements IUser {
 		setAvatar(avatar);
 		this.presence = presence;
 		this.isBot = isBot;
-		this.roles = new Cache<>((DiscordClientImpl) client, RolesHolder.class);
-		this.nicks = new Cache<>((DiscordClientImpl) client, NickHolder.class);
-		this.voiceStates = new Cache<>((DiscordClientImpl) client, IVoiceState.class);
 	}
 
 	@Override
@@ -207,15 +298,105 @@ public class User implements IUser {
 		this.discriminator = discriminator;
 	}
 
+	/**
+	 * Gets the guild-specific data of the user in a guild.
+	 *
+	 * @param guild The guild.
+	 * @return The guild-specific data, or null if the user is not a member of the guild.
+	 */
+	public Guild.Member getMember(IGuild guild) {
+		LongMap<Guild.Member> snapshot = memberSnapshot;
+		return snapshot == null ? ((Guild) guild).members.get(id) : snapshot.get(guild.getLongID());
+	}
+
+	/**
+	 * Gets the guild-specific data of the user in every guild which has it.
+	 *
+	 * @return The guild-specific data keyed by guild ID. This must not be modified.
+	 */
+	private LongMap<Guild.Member> getMembers() {
+		LongMap<Guild.Member> snapshot = memberSnapshot;
+		if (snapshot != null) return snapshot;
+
+		LongMap<Guild.Member> members = LongMap.newMap();
+		if (shard != null) {
+			for (long guildID : guildIDs) {
+				Guild guild = (Guild) shard.getGuildByID(guildID);
+				Guild.Member member = guild == null ? null : guild.members.get(id);
+				if (member != null) members.put(guildID, member);
+			}
+		}
+		return members;
+	}
+
+	private Guild.Member getMember(long guildID) {
+		LongMap<Guild.Member> snapshot = memberSnapshot;
+		if (snapshot != null) return snapshot.get(guildID);
+
+		IGuild guild = shard == null ? null : shard.getGuildByID(guildID);
+		return guild == null ? null : ((Guild) guild).members.get(id);
+	}
+
+	private void setMember(long guildID, Guild.Member member) {
+		if (memberSnapshot != null) {
+			synchronized (this) {
+				LongMap<Guild.Member> snapshot = LongMap.copyMap(memberSnapshot);
+				snapshot.put(guildID, member);
+				memberSnapshot = snapshot;
+			}
+			return;
+		}
+
+		IGuild guild = shard == null ? null : shard.getGuildByID(guildID);
+		if (guild != null) ((Guild) guild).putMember(this, member);
+	}
+
+	/**
+	 * Records that a guild has a {@link Guild.Member} record for the user.
+	 *
+	 * @param guildID The unique snowflake ID of the guild.
+	 */
+	public synchronized void addGuild(long guildID) {
+		long[] guildIDs = this.guildIDs;
+		int index = Arrays.binarySearch(guildIDs, guildID);
+		if (index >= 0) return;
+
+		index = -index - 1;
+		long[] updated = new long[guildIDs.length + 1];
+		System.arraycopy(guildIDs, 0, updated, 0, index);
+		updated[index] = guildID;
+		System.arraycopy(guildIDs, index, updated, index + 1, guildIDs.length - index);
+		this.guildIDs = updated;
+	}
+
+	/**
+	 * Records that a guild no longer has a {@link Guild.Member} record for the user.
+	 *
+	 * @param guildID The unique snowflake ID of the guild.
+	 */
+	public synchronized void removeGuild(long guildID) {
+		long[] guildIDs = this.guildIDs;
+		int index = Arrays.binarySearch(guildIDs, guildID);
+		if (index < 0) return;
+
+		long[] updated = guildIDs.length == 1 ? NO_IDS : new long[guildIDs.length - 1];
+		System.arraycopy(guildIDs, 0, updated, 0, index);
+		System.arraycopy(guildIDs, index + 1, updated, index, guildIDs.length - index - 1);
+		this.guildIDs = updated;
+	}
+
 	@Override
 	public List<IRole> getRolesForGuild(IGuild guild) {
-		if (roles != null) {
-			RolesHolder retrievedRoles = roles.get(guild.getLongID());
-			if (retrievedRoles != null && retrievedRoles.getObject() != null)
-				return retrievedRoles.getObject().stream().filter(Objects::nonNull).collect(Collectors.toCollection(LinkedList::new));
+		List<IRole> roles = new LinkedList<>();
+		Guild.Member member = getMember(guild);
+		if (member != null) {
+			for (long roleID : member.getRoleIDs()) {
+				IRole role = guild.getRoleByID(roleID);
+				if (role != null) roles.add(role);
+			}
 		}
 
-		return new LinkedList<>();
+		return roles;
 	}
 
 	@Override
@@ -249,19 +430,54 @@ public class User implements IUser {
 
 	@Override
 	public String getNicknameForGuild(IGuild guild) {
-		NickHolder holder = nicks.get(guild.getLongID());
-		return holder == null ? null : holder.getObject();
+		Guild.Member member = getMember(guild);
+		return member == null ? null : member.getNick();
 	}
 
 	@Override
 	public IVoiceState getVoiceStateForGuild(IGuild guild) {
+		Cache<IVoiceState> voiceStates = voiceStateCache;
+		IVoiceState voiceState = voiceStates == null ? null : voiceStates.get(guild.getLongID());
+		return voiceState == null ? new VoiceState(guild, this) : voiceState;
+	}
+
+	/**
+	 * Gets the voice state the user has in a guild, storing a default voice state if there is none. Unlike
+	 * {@link #getVoiceStateForGuild(IGuild)}, changes made to the returned voice state are kept.
+	 *
+	 * @param guild The guild to get the voice state for.
+	 * @return The stored voice state.
+	 */
+	public VoiceState getOrCreateVoiceState(IGuild guild) {
+		Cache<IVoiceState> voiceStates = getVoiceStateCache();
 		voiceStates.putIfAbsent(guild.getLongID(), () -> new VoiceState(guild, this));
-		return voiceStates.get(guild.getLongID());
+		return (VoiceState) voiceStates.get(guild.getLongID());
 	}
 
 	@Override
 	public LongMap<IVoiceState> getVoiceStates() {
-		return voiceStates.mapCopy();
+		Cache<IVoiceState> voiceStates = voiceStateCache;
+		return voiceStates == null ? LongMap.newMap() : voiceStates.mapCopy();
+	}
+
+	/**
+	 * Gets the cache of the voice states the user has in each guild, allocating it if this is the first time it is
+	 * needed. Most users are never in a voice channel, so {@link #getVoiceStateForGuild(IGuild)} returns a default
+	 * voice state which is not stored instead of allocating the cache. Use {@link #getOrCreateVoiceState(IGuild)} to
+	 * get a voice state which is going to be modified.
+	 *
+	 * @return The cache of voice states.
+	 */
+	public Cache<IVoiceState> getVoiceStateCache() {
+		Cache<IVoiceState> voiceStates = voiceStateCache;
+		if (voiceStates == null) {
+			synchronized (this) {
+				voiceStates = voiceStateCache;
+				if (voiceStates == null)
+					voiceStateCache = voiceStates = new Cache<>((DiscordClientImpl) client, IVoiceState.class);
+			}
+		}
+		return voiceStates;
 	}
 
 	@Override
@@ -289,20 +505,33 @@ public class User implements IUser {
 	 *
 	 * @param guildID The unique snowflake ID of the guild to cache the nickname for.
 	 * @param nick The nickname.
+	 * @deprecated Nicknames are stored in {@link Guild.Member} records. Put a record made with
+	 * {@link Guild.Member#withNick(String)} into the guild with {@link Guild#putMember(User, Guild.Member)} instead.
 	 */
+	@Deprecated
 	public void addNick(long guildID, String nick) {
-		nicks.put(new NickHolder(guildID, nick));
+		Guild.Member member = getMember(guildID);
+		setMember(guildID, member == null ? new Guild.Member(id, new long[] {guildID}, nick, null) : member.withNick(nick));
 	}
 
 	/**
-	 * Adds a CACHEDED role of the user in a guild.
+	 * Adds a CACHED role of the user in a guild.
 	 *
 	 * @param guildID The unique snowflake ID of the guild to cache the role for.
 	 * @param role The role.
+	 * @deprecated Roles are stored in {@link Guild.Member} records. Put a record made with
+	 * {@link Guild.Member#withRoles(long[])} into the guild with {@link Guild#putMember(User, Guild.Member)} instead.
 	 */
+	@Deprecated
 	public void addRole(long guildID, IRole role) {
-		roles.putIfAbsent(guildID, () -> new RolesHolder(guildID, new CopyOnWriteArraySet<>()));
-		roles.get(guildID).getObject().add(role);
+		Guild.Member member = getMember(guildID);
+		long[] roleIDs = member == null ? NO_IDS : member.getRoleIDs();
+		if (Arrays.binarySearch(roleIDs, role.getLongID()) >= 0) return;
+
+		roleIDs = Arrays.copyOf(roleIDs, roleIDs.length + 1);
+		roleIDs[roleIDs.length - 1] = role.getLongID();
+		Arrays.sort(roleIDs);
+		setMember(guildID, member == null ? new Guild.Member(id, roleIDs, null, null) : member.withRoles(roleIDs));
 	}
 
 	@Override
@@ -319,16 +548,17 @@ public class User implements IUser {
 
 	@Override
 	public boolean hasRole(IRole role) {
-		return getRolesForGuild(role.getGuild()).contains(role);
+		Guild.Member member = getMember(role.getGuild());
+		return member != null && member.hasRole(role.getLongID()) && role.getGuild().getRoleByID(role.getLongID()) != null;
 	}
 
 	@Override
 	public IUser copy() {
 		User newUser = new User(shard, name, id, discriminator, avatar, presence, isBot);
-		newUser.voiceStates.putAll(voiceStates);
+		Cache<IVoiceState> voiceStates = voiceStateCache;
+		if (voiceStates != null) newUser.getVoiceStateCache().putAll(voiceStates);
 		newUser.setPresence(presence.copy());
-		newUser.nicks.putAll(nicks);
-		newUser.roles.putAll(roles);
+		newUser.memberSnapshot = getMembers(); // Snapshots are never modified, so a copy of a copy can share it
 		return newUser;
 	}
 
@@ -370,7 +600,10 @@ public class User implements IUser {
 
 /**
  * Associates a guild ID to the roles a user has in the guild.
+ *
+ * @deprecated Roles are stored in {@link Guild.Member} records. See {@link User#roles}.
  */
+@Deprecated
 class RolesHolder extends IDLinkedObjectWrapper<Collection<IRole>> {
 
 	RolesHolder(long id, Collection<IRole> roles) {
@@ -380,7 +613,10 @@ class RolesHolder extends IDLinkedObjectWrapper<Collection<IRole>> {
 
 /**
  * Associates a guild ID to the nickname a user has in the guild.
+ *
+ * @deprecated Nicknames are stored in {@link Guild.Member} records. See {@link User#nicks}.
  */
+@Deprecated
 class NickHolder extends IDLinkedObjectWrapper<String> {
 
 	NickHolder(long id, String string) {
@@ -31,6 +31,7 @@ import java.io.File;
 import java.io.InputStream;
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 /**
@@ -143,7 +144,7 @@ public class VoiceChannel extends Channel implements IVoiceChannel {
 		getShard().checkReady("leave voice channel");
 		if (!isConnected()) return;
 
-		VoiceState voiceState = (VoiceState) getClient().getOurUser().getVoiceStateForGuild(getGuild());
+		VoiceState voiceState = ((User) getClient().getOurUser()).getOrCreateVoiceState(getGuild());
 		boolean isSelfMuted = voiceState.isSelfMuted();
 		boolean isSelfDeafened = voiceState.isSelfDeafened();
 
@@ -283,6 +284,11 @@ public class VoiceChannel extends Channel implements IVoiceChannel {
 		throw new UnsupportedOperationException();
 	}
 
+	@Override
+	public CompletableFuture<IMessage> sendMessageAsync(String content) {
+		throw new UnsupportedOperationException();
+	}
+
 	@Override
 	public IMessage sendFile(File file) {
 		throw new UnsupportedOperationException();
@@ -27,6 +27,7 @@ import java.io.InputStream;
 import java.time.Instant;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A text, voice, or private channel in Discord.
@@ -341,6 +342,39 @@ public interface IChannel extends IDiscordObject<IChannel> {
 	 */
 	IMessage sendMessage(String content, EmbedObject embed, boolean tts);
 
+	/**
+	 * Sends a message in the channel without blocking the calling thread.
+	 *
+	 * @param content The content of the message.
+	 * @return A future which is completed with the sent message object.
+	 */
+	CompletableFuture<IMessage> sendMessageAsync(String content);
+
+	/**
+	 * Sends a message in the channel without blocking the calling thread.
+	 *
+	 * @param embed The embed in the message.
+	 * @return A future which is completed with the sent message object.
+	 *
+	 * @see EmbedBuilder
+	 */
+	CompletableFuture<IMessage> sendMessageAsync(EmbedObject embed);
+
+	/**
+	 * Sends a message in the channel without blocking the calling thread.
+	 *
+	 * <p>Permission checks are performed immediately and throw on the calling thread. Errors which occur while the
+	 * request is in flight (such as a {@link DiscordException}) complete the returned future exceptionally.
+	 *
+	 * @param content The content of the message.
+	 * @param embed The embed in the message.
+	 * @param tts Whether the message should use text-to-speech.
+	 * @return A future which is completed with the sent message object.
+	 *
+	 * @see EmbedBuilder
+	 */
+	CompletableFuture<IMessage> sendMessageAsync(String content, EmbedObject embed, boolean tts);
+
 	/**
 	 * Sends a message in the channel.
 	 *
@@ -25,6 +25,7 @@ import sx.blah.discord.util.Image;
 
 import java.time.Instant;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * A Discord guild.
@@ -292,6 +293,27 @@ public interface IGuild extends IDiscordObject<IGuild> {
 	 */
 	void banUser(long userID, String reason, int deleteMessagesForDays);
 
+	/**
+	 * Bans a user from the guild without blocking the calling thread.
+	 *
+	 * @param user The user to ban.
+	 * @return A future which is completed when the ban has been made.
+	 */
+	CompletableFuture<Void> banUserAsync(IUser user);
+
+	/**
+	 * Bans a user from the guild without blocking the calling thread.
+	 *
+	 * <p>Permission checks are performed immediately and throw on the calling thread. Errors which occur while the
+	 * request is in flight complete the returned future exceptionally.
+	 *
+	 * @param userID The snowflake ID of the user to ban.
+	 * @param reason The reason for banning. This may be at most {@value Ban#MAX_REASON_LENGTH} characters long.
+	 * @param deleteMessagesForDays The number of days to delete messages from this user for.
+	 * @return A future which is completed when the ban has been made.
+	 */
+	CompletableFuture<Void> banUserAsync(long userID, String reason, int deleteMessagesForDays);
+
 	/**
 	 * Unbans a user.
 	 *
@@ -0,0 +1,162 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.util;
+
+import sx.blah.discord.Discord4J;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The default {@link IRetryPolicy}. Retries are delayed with exponential backoff using decorrelated jitter and are
+ * abandoned after a maximum number of retries or a maximum amount of elapsed time.
+ *
+ * <p>Each route also has a circuit breaker. Once a route fails a number of times in a row, requests to it fail
+ * immediately for a while instead of waiting on an outage. After that, a single request is let through to test whether
+ * the route has recovered.
+ *
+ * @see <a href=https://aws.amazon.com/blogs/architecture/exponential-backoff-and-jitter/>Exponential Backoff And Jitter</a>
+ */
+public class BackoffRetryPolicy implements IRetryPolicy {
+
+	/**
+	 * The default minimum delay (in milliseconds) before a retry.
+	 */
+	public static final long DEFAULT_BASE_DELAY = 500;
+	/**
+	 * The default maximum delay (in milliseconds) before a retry.
+	 */
+	public static final long DEFAULT_MAX_DELAY = TimeUnit.SECONDS.toMillis(30);
+	/**
+	 * The default maximum time (in milliseconds) spent retrying a request.
+	 */
+	public static final long DEFAULT_MAX_ELAPSED_TIME = TimeUnit.MINUTES.toMillis(2);
+	/**
+	 * The default number of consecutive failures after which requests to a route fail fast.
+	 */
+	public static final int DEFAULT_FAILURE_THRESHOLD = 10;
+	/**
+	 * The default time (in milliseconds) requests to a failing route fail fast for.
+	 */
+	public static final long DEFAULT_OPEN_DURATION = TimeUnit.SECONDS.toMillis(30);
+
+	private final int maxRetries;
+	private final long baseDelay;
+	private final long maxDelay;
+	private final long maxElapsedTime;
+	private final int failureThreshold;
+	private final long openDuration;
+
+	/**
+	 * The circuits of routes which have recently failed.
+	 */
+	private final Map<String, Circuit> circuits = new ConcurrentHashMap<>();
+
+	/**
+	 * @param maxRetries The maximum number of times a request is retried.
+	 */
+	public BackoffRetryPolicy(int maxRetries) {
+		this(maxRetries, DEFAULT_BASE_DELAY, DEFAULT_MAX_DELAY, DEFAULT_MAX_ELAPSED_TIME, DEFAULT_FAILURE_THRESHOLD,
+				DEFAULT_OPEN_DURATION);
+	}
+
+	/**
+	 * @param maxRetries The maximum number of times a request is retried.
+	 * @param baseDelay The minimum delay (in milliseconds) before a retry.
+	 * @param maxDelay The maximum delay (in milliseconds) before a retry.
+	 * @param maxElapsedTime The maximum time (in milliseconds) spent retrying a request.
+	 * @param failureThreshold The number of consecutive failures after which requests to a route fail fast. A
+	 *                         non-positive value disables the circuit breaker.
+	 * @param openDuration The time (in milliseconds) requests to a failing route fail fast for.
+	 */
+	public BackoffRetryPolicy(int maxRetries, long baseDelay, long maxDelay, long maxElapsedTime, int failureThreshold,
+							  long openDuration) {
+		if (baseDelay < 1 || maxDelay < baseDelay)
+			throw new IllegalArgumentException("Delays must be positive and the base delay must not exceed the max delay!");
+
+		this.maxRetries = maxRetries;
+		this.baseDelay = baseDelay;
+		this.maxDelay = maxDelay;
+		this.maxElapsedTime = maxElapsedTime;
+		this.failureThreshold = failureThreshold;
+		this.openDuration = openDuration;
+	}
+
+	@Override
+	public long getRetryDelay(String route, int attempt, long elapsedTime, long previousDelay) {
+		if (attempt > maxRetries) return -1;
+
+		long upperBound = Math.min(maxDelay, Math.max(baseDelay, previousDelay * 3));
+		long delay = ThreadLocalRandom.current().nextLong(baseDelay, upperBound + 1);
+		return elapsedTime + delay > maxElapsedTime ? -1 : delay;
+	}
+
+	@Override
+	public boolean allowRequest(String route) {
+		Circuit circuit = circuits.get(route);
+		return circuit == null || circuit.allowRequest();
+	}
+
+	@Override
+	public void onSuccess(String route) {
+		circuits.remove(route);
+	}
+
+	@Override
+	public void onFailure(String route) {
+		if (failureThreshold > 0)
+			circuits.computeIfAbsent(route, Circuit::new).onFailure();
+	}
+
+	/**
+	 * The circuit breaker of a single route.
+	 */
+	private final class Circuit {
+
+		private final String route;
+		private int failures = 0;
+		/**
+		 * The time (in epoch milliseconds) until which requests fail fast, or 0 if the circuit is closed.
+		 */
+		private long openUntil = 0;
+
+		private Circuit(String route) {
+			this.route = route;
+		}
+
+		synchronized boolean allowRequest() {
+			long now = System.currentTimeMillis();
+			if (openUntil == 0) return true;
+			if (now < openUntil) return false;
+
+			openUntil = now + openDuration; //Let a single request through to test the route
+			return true;
+		}
+
+		synchronized void onFailure() {
+			if (++failures >= failureThreshold) {
+				if (openUntil == 0)
+					Discord4J.LOGGER.warn(LogMarkers.API, "Requests to {} failed {} times in a row. Failing fast for {}ms.",
+							route, failures, openDuration);
+				openUntil = System.currentTimeMillis() + openDuration;
+			}
+		}
+	}
+}
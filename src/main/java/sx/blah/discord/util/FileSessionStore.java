@@ -0,0 +1,96 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import sx.blah.discord.Discord4J;
+import sx.blah.discord.api.internal.DiscordUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * An {@link ISessionStore} which keeps every shard's session in a small json file in a directory.
+ */
+public class FileSessionStore implements ISessionStore {
+
+	/**
+	 * The directory the session files are stored in.
+	 */
+	private final Path directory;
+
+	/**
+	 * @param directory The directory to store the session files in. It is created if it doesn't exist.
+	 */
+	public FileSessionStore(Path directory) {
+		this.directory = directory;
+	}
+
+	@Override
+	public StoredSession load(int shard, int shardCount) {
+		Path file = getFile(shard, shardCount);
+		if (!Files.exists(file)) return null;
+
+		try {
+			JsonNode json = DiscordUtils.MAPPER.readTree(file.toFile());
+			return new StoredSession(json.get("session_id").asText(), json.get("seq").asLong());
+		} catch (IOException | NullPointerException e) {
+			Discord4J.LOGGER.warn(LogMarkers.WEBSOCKET, "Unable to read stored session of shard " + shard + ", ignoring it.", e);
+			return null;
+		}
+	}
+
+	@Override
+	public synchronized void save(int shard, int shardCount, StoredSession session) {
+		ObjectNode json = DiscordUtils.MAPPER.createObjectNode()
+				.put("session_id", session.getSessionId())
+				.put("seq", session.getSequence());
+		try {
+			Files.createDirectories(directory);
+			Path file = getFile(shard, shardCount);
+			Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+			DiscordUtils.MAPPER.writeValue(temp.toFile(), json);
+			// Never leave a half written file behind if the process dies while saving
+			Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			Discord4J.LOGGER.warn(LogMarkers.WEBSOCKET, "Unable to store session of shard " + shard + ".", e);
+		}
+	}
+
+	@Override
+	public synchronized void clear(int shard, int shardCount) {
+		try {
+			Files.deleteIfExists(getFile(shard, shardCount));
+		} catch (IOException e) {
+			Discord4J.LOGGER.warn(LogMarkers.WEBSOCKET, "Unable to remove stored session of shard " + shard + ".", e);
+		}
+	}
+
+	/**
+	 * Gets the file the session of a shard is stored in.
+	 *
+	 * @param shard The index of the shard.
+	 * @param shardCount The total number of shards.
+	 * @return The file the session of the shard is stored in.
+	 */
+	private Path getFile(int shard, int shardCount) {
+		return directory.resolve("session-" + shard + "-" + shardCount + ".json");
+	}
+}
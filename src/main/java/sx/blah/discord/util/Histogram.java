@@ -0,0 +1,121 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative values, for example latencies.
+ *
+ * <p>Values are counted in buckets of powers of two, so percentiles are accurate to within a factor of two while
+ * recording a value is only a few atomic increments. The count, mean and maximum are exact.
+ */
+public class Histogram {
+
+	/**
+	 * The number of buckets. Bucket <code>i</code> holds the values in <code>[2^(i-1), 2^i)</code> (bucket 0 holds 0).
+	 */
+	private static final int BUCKETS = 64;
+
+	/**
+	 * The number of recorded values in each bucket.
+	 */
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	/**
+	 * The number of recorded values.
+	 */
+	private final LongAdder count = new LongAdder();
+	/**
+	 * The sum of the recorded values.
+	 */
+	private final LongAdder sum = new LongAdder();
+	/**
+	 * The largest recorded value.
+	 */
+	private final AtomicLong max = new AtomicLong();
+
+	/**
+	 * Records a value. Negative values are recorded as 0.
+	 *
+	 * @param value The value to record.
+	 */
+	public void record(long value) {
+		if (value < 0) value = 0;
+		buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value)));
+		count.increment();
+		sum.add(value);
+		max.accumulateAndGet(value, Math::max);
+	}
+
+	/**
+	 * Gets the number of recorded values.
+	 *
+	 * @return The number of recorded values.
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Gets the mean of the recorded values.
+	 *
+	 * @return The mean of the recorded values, or 0 if none were recorded.
+	 */
+	public double getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : (double) sum.sum() / count;
+	}
+
+	/**
+	 * Gets the largest recorded value.
+	 *
+	 * @return The largest recorded value, or 0 if none were recorded.
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * Gets an upper bound of the given percentile of the recorded values. The actual percentile is at least half of
+	 * the returned value.
+	 *
+	 * @param percentile The percentile, between 0 and 100.
+	 * @return An upper bound of the percentile, or 0 if no values were recorded.
+	 */
+	public long getPercentile(double percentile) {
+		long[] counts = new long[BUCKETS];
+		long total = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			counts[i] = buckets.get(i);
+			total += counts[i];
+		}
+		if (total == 0) return 0;
+
+		long rank = (long) Math.ceil(total * Math.min(100, Math.max(0, percentile)) / 100);
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank && counts[i] > 0) {
+				long upper = i == 0 ? 0 : (i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << i) - 1);
+				return Math.min(upper, getMax());
+			}
+		}
+		return getMax();
+	}
+}
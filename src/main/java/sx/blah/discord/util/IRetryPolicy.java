@@ -0,0 +1,64 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.util;
+
+/**
+ * Decides whether and when a request which failed because of a problem on Discord's end (a 5xx response) is retried.
+ * Implementations may also refuse requests outright, for example to fail fast while Discord is having an outage.
+ *
+ * <p>Implementations must be thread safe.
+ *
+ * @see BackoffRetryPolicy
+ */
+public interface IRetryPolicy {
+
+	/**
+	 * Gets how long to wait before retrying a failed request.
+	 *
+	 * @param route The rate limit bucket of the request.
+	 * @param attempt The number of times the request has been attempted so far.
+	 * @param elapsedTime The time (in milliseconds) since the request was first attempted.
+	 * @param previousDelay The delay (in milliseconds) before the previous retry, or 0 if this is the first retry.
+	 * @return The delay (in milliseconds) before the request is retried, or a negative number to give up.
+	 */
+	long getRetryDelay(String route, int attempt, long elapsedTime, long previousDelay);
+
+	/**
+	 * Gets whether a request to a route may currently be attempted. If not, the request fails immediately.
+	 *
+	 * @param route The rate limit bucket of the request.
+	 * @return Whether the request may be attempted.
+	 */
+	default boolean allowRequest(String route) {
+		return true;
+	}
+
+	/**
+	 * Called when Discord responds to a request without a server error.
+	 *
+	 * @param route The rate limit bucket of the request.
+	 */
+	default void onSuccess(String route) {}
+
+	/**
+	 * Called when a request fails with a server error or could not reach Discord.
+	 *
+	 * @param route The rate limit bucket of the request.
+	 */
+	default void onFailure(String route) {}
+}
@@ -0,0 +1,96 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.util;
+
+/**
+ * Persists the gateway sessions of a client's shards so they can be resumed after the process restarts instead of
+ * identifying again and receiving every guild from scratch.
+ *
+ * <p>A resumed session only receives the events which were missed while it was disconnected. Restoring sessions is
+ * therefore only useful if the cache of the client survives the restart as well (see
+ * {@link sx.blah.discord.util.cache.ICacheDelegateProvider}).
+ *
+ * <p>Implementations must be thread safe.
+ *
+ * @see FileSessionStore
+ */
+public interface ISessionStore {
+
+	/**
+	 * Loads the stored session of a shard.
+	 *
+	 * @param shard The index of the shard.
+	 * @param shardCount The total number of shards.
+	 * @return The stored session, or null if there is none.
+	 */
+	StoredSession load(int shard, int shardCount);
+
+	/**
+	 * Stores the session of a shard, replacing any previously stored session.
+	 *
+	 * @param shard The index of the shard.
+	 * @param shardCount The total number of shards.
+	 * @param session The session to store.
+	 */
+	void save(int shard, int shardCount, StoredSession session);
+
+	/**
+	 * Removes the stored session of a shard because it can no longer be resumed.
+	 *
+	 * @param shard The index of the shard.
+	 * @param shardCount The total number of shards.
+	 */
+	void clear(int shard, int shardCount);
+
+	/**
+	 * The information needed to resume a gateway session.
+	 */
+	final class StoredSession {
+
+		/**
+		 * The ID of the session.
+		 */
+		private final String sessionId;
+		/**
+		 * The last sequence number received in the session.
+		 */
+		private final long sequence;
+
+		public StoredSession(String sessionId, long sequence) {
+			this.sessionId = sessionId;
+			this.sequence = sequence;
+		}
+
+		/**
+		 * Gets the ID of the session.
+		 *
+		 * @return The ID of the session.
+		 */
+		public String getSessionId() {
+			return sessionId;
+		}
+
+		/**
+		 * Gets the last sequence number received in the session.
+		 *
+		 * @return The last sequence number received in the session.
+		 */
+		public long getSequence() {
+			return sequence;
+		}
+	}
+}
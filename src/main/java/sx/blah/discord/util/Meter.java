@@ -0,0 +1,120 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free counter which also tracks the rate at which it is incremented.
+ *
+ * <p>The rate is an exponentially weighted moving average over roughly the last minute, updated every
+ * {@link #TICK_INTERVAL} seconds.
+ */
+public class Meter {
+
+	/**
+	 * The number of seconds between updates of the rate.
+	 */
+	private static final long TICK_INTERVAL = 5;
+	/**
+	 * How much a new tick is weighted against the previous rate, for a one minute average.
+	 */
+	private static final double ALPHA = 1 - Math.exp(-TICK_INTERVAL / 60.0);
+
+	/**
+	 * The total number of occurrences.
+	 */
+	private final LongAdder count = new LongAdder();
+	/**
+	 * The number of occurrences since the last tick.
+	 */
+	private final LongAdder uncounted = new LongAdder();
+	/**
+	 * The time of the last tick, in nanoseconds.
+	 */
+	private final AtomicLong lastTick = new AtomicLong(System.nanoTime());
+	/**
+	 * The current rate in occurrences per second.
+	 */
+	private volatile double rate;
+	/**
+	 * Whether the rate was calculated at least once.
+	 */
+	private volatile boolean initialized;
+
+	/**
+	 * Records one occurrence.
+	 */
+	public void mark() {
+		mark(1);
+	}
+
+	/**
+	 * Records the given number of occurrences.
+	 *
+	 * @param n The number of occurrences.
+	 */
+	public void mark(long n) {
+		tickIfNecessary();
+		count.add(n);
+		uncounted.add(n);
+	}
+
+	/**
+	 * Gets the total number of occurrences.
+	 *
+	 * @return The total number of occurrences.
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * Gets the number of occurrences per second, averaged over roughly the last minute.
+	 *
+	 * @return The number of occurrences per second.
+	 */
+	public double getRate() {
+		tickIfNecessary();
+		return rate;
+	}
+
+	/**
+	 * Updates the rate for every tick interval which passed since the last update.
+	 */
+	private void tickIfNecessary() {
+		long interval = TimeUnit.SECONDS.toNanos(TICK_INTERVAL);
+		long old = lastTick.get();
+		long age = System.nanoTime() - old;
+		if (age < interval) return;
+
+		long ticks = age / interval;
+		if (!lastTick.compareAndSet(old, old + ticks * interval)) return; // Another thread is ticking
+
+		for (long i = 0; i < ticks; i++) {
+			double instantRate = (double) uncounted.sumThenReset() / TICK_INTERVAL;
+			if (initialized) {
+				rate += ALPHA * (instantRate - rate);
+			} else {
+				rate = instantRate;
+				initialized = true;
+			}
+		}
+	}
+}
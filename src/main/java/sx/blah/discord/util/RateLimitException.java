@@ -20,8 +20,10 @@ package sx.blah.discord.util;
 /**
  * Thrown when performing an operation with Discord would result in being ratelimited.
  *
- * <p>This should always be preemptively thrown by Discord4J's request system. However, if the user somehow hits an
- * actual HTTP 429 from Discord, it will also be reported through this exception.
+ * <p>Discord4J's request system queues rate limited requests until they can be made. It only throws this exception
+ * inside {@link RequestBuffer} attempts, where it is handled by the buffer so that the attempt does not block a buffer
+ * thread. It remains available for code which performs its own rate limiting and wishes to defer work through
+ * {@link RequestBuffer}.
  */
 public class RateLimitException extends RuntimeException {
 
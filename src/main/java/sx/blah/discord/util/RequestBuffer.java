@@ -20,8 +20,7 @@ package sx.blah.discord.util;
 import sx.blah.discord.Discord4J;
 import sx.blah.discord.api.internal.DiscordUtils;
 
-import java.util.List;
-import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.StampedLock;
@@ -29,61 +28,103 @@ import java.util.concurrent.locks.StampedLock;
 /**
  * A utility class intended to deal with {@link RateLimitException}s by queueing rate-limited operations until they can
  * be completed.
+ *
+ * <p>Every request is executed on one shared, fixed size thread pool. The threads never wait for a rate limit. When a
+ * request made by an attempt has to wait for its bucket, the attempt is abandoned with a {@link RateLimitException}
+ * and retried once the rate limiter grants the request a permit, which is handed over to the retry. Requests are
+ * granted permits in order of their {@link RequestPriority} and then in the order they were made. Requests which throw
+ * a {@link RateLimitException} themselves are retried after its delay.
  */
 public class RequestBuffer {
 
-	private static final ExecutorService initialExecutor = Executors.newFixedThreadPool(2, DiscordUtils.createDaemonThreadFactory("RequestBuffer Initial Executor"));
-	private static final Map<String, ScheduledExecutorService> requestServices = new ConcurrentHashMap<>();
-	private static final Map<String, List<RequestFuture>> requests = new ConcurrentHashMap<>();
+	/**
+	 * The number of threads requests are executed on.
+	 */
+	private static final int THREAD_COUNT = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+	private static final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(THREAD_COUNT, DiscordUtils.createDaemonThreadFactory("RequestBuffer Executor"));
 
 	/**
-	 * Queues a request.
+	 * The rate-limited requests which are waiting to be retried.
+	 */
+	private static final Set<RequestFuture<?>> waiting = ConcurrentHashMap.newKeySet();
+
+	/**
+	 * The request being attempted on the current thread.
+	 */
+	private static final ThreadLocal<RequestFuture<?>> attempting = new ThreadLocal<>();
+
+	/**
+	 * The number of requests which have been accepted but have not yet completed.
+	 */
+	private static final AtomicInteger incompleteRequests = new AtomicInteger();
+
+	/**
+	 * The maximum number of incomplete requests. A negative value indicates no limit.
+	 */
+	private static volatile int maxIncompleteRequests = -1;
+
+	/**
+	 * Queues a request with the {@link RequestPriority#current() priority} of the calling thread.
 	 *
 	 * @param request The request to be carried out.
 	 * @param <T> The type of the object returned by the request.
 	 * @return The result of the request.
+	 * @throws RejectedExecutionException If the buffer already holds the maximum number of incomplete requests.
+	 * @see #setMaxIncompleteRequests(int)
 	 */
 	public static <T> RequestFuture<T> request(IRequest<T> request) {
-		final RequestFuture<T> future = new RequestFuture<>(request);
-		initialExecutor.execute(() -> {
-			try {
-				future.run();
-				if (future.callable.rateLimited && future.getDelay(TimeUnit.MILLISECONDS) >= 0) {
-					Discord4J.LOGGER.debug(LogMarkers.UTIL, "Attempted request rate-limited, queueing retry in {}ms",
-							future.getDelay(TimeUnit.MILLISECONDS));
-
-					if (future.getBucket() != null) {
-						synchronized (requests) {
-							if (future.getBucket() != null) {
-								if (!requests.containsKey(future.getBucket())) {
-									requests.put(future.getBucket(), new CopyOnWriteArrayList<>());
-									requestServices.put(future.getBucket(), Executors.newSingleThreadScheduledExecutor(DiscordUtils.createDaemonThreadFactory("RequestBuffer Retry Handler")));
-									requestServices.get(future.getBucket()).schedule(new RequestRunnable(future.getBucket()), future.getDelay(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
-								}
-
-								requests.get(future.getBucket()).add(future);
-							}
-						}
-					}
-				}
-			} catch (Exception e) {
-				Discord4J.LOGGER.error(LogMarkers.UTIL, "Exception caught while attempting to execute a request", e);
-			}
-		});
-		return future;
+		return request(request, RequestPriority.current());
 	}
 
 	/**
 	 * Queues a request.
 	 *
 	 * @param request The request to be carried out.
+	 * @param priority The priority of the request.
+	 * @param <T> The type of the object returned by the request.
 	 * @return The result of the request.
+	 * @throws RejectedExecutionException If the buffer already holds the maximum number of incomplete requests.
+	 * @see #setMaxIncompleteRequests(int)
+	 */
+	public static <T> RequestFuture<T> request(IRequest<T> request, RequestPriority priority) {
+		int max = maxIncompleteRequests;
+		if (incompleteRequests.incrementAndGet() > max && max >= 0) {
+			incompleteRequests.decrementAndGet();
+			throw new RejectedExecutionException("RequestBuffer is full! (" + max + " incomplete requests)");
+		}
+
+		final RequestFuture<T> future = new RequestFuture<>(request, priority);
+		executor.execute(() -> attempt(future));
+		return future;
+	}
+
+	/**
+	 * Queues a request with the {@link RequestPriority#current() priority} of the calling thread.
+	 *
+	 * @param request The request to be carried out.
+	 * @return The result of the request.
+	 * @throws RejectedExecutionException If the buffer already holds the maximum number of incomplete requests.
+	 * @see #setMaxIncompleteRequests(int)
 	 */
 	public static RequestFuture<Void> request(IVoidRequest request) {
+		return request(request, RequestPriority.current());
+	}
+
+	/**
+	 * Queues a request.
+	 *
+	 * @param request The request to be carried out.
+	 * @param priority The priority of the request.
+	 * @return The result of the request.
+	 * @throws RejectedExecutionException If the buffer already holds the maximum number of incomplete requests.
+	 * @see #setMaxIncompleteRequests(int)
+	 */
+	public static RequestFuture<Void> request(IVoidRequest request, RequestPriority priority) {
 		return request(() -> {
 			request.doRequest();
 			return null;
-		});
+		}, priority);
 	}
 
 	/**
@@ -92,11 +133,27 @@ public class RequestBuffer {
 	 * @return The number of incomplete requests.
 	 */
 	public static int getIncompleteRequestCount() {
-		final AtomicInteger count = new AtomicInteger();
-		synchronized (requests) {
-			requests.values().parallelStream().forEach((requestFutures) -> count.addAndGet(requestFutures.size()));
-		}
-		return count.get();
+		return incompleteRequests.get();
+	}
+
+	/**
+	 * Sets the maximum number of incomplete requests the buffer may hold. Once it is reached, {@link #request(IRequest)}
+	 * throws a {@link RejectedExecutionException} until earlier requests complete, signalling to the caller that it is
+	 * producing requests faster than Discord accepts them.
+	 *
+	 * @param max The maximum number of incomplete requests. A negative value (the default) indicates no limit.
+	 */
+	public static void setMaxIncompleteRequests(int max) {
+		maxIncompleteRequests = max;
+	}
+
+	/**
+	 * Gets the maximum number of incomplete requests the buffer may hold.
+	 *
+	 * @return The maximum number of incomplete requests. A negative value indicates no limit.
+	 */
+	public static int getMaxIncompleteRequests() {
+		return maxIncompleteRequests;
 	}
 
 	/**
@@ -105,19 +162,106 @@ public class RequestBuffer {
 	 * @return The number of requests killed.
 	 */
 	public static int killAllRequests() {
-		final int toKill = getIncompleteRequestCount();
-		//We are ignoring the initialExecutor because those requests haven't been ratelimited (yet)
-		synchronized (requestServices) {
-			requestServices.keySet().parallelStream().distinct().forEach(bucket -> {
-				requestServices.get(bucket).shutdownNow();
-				requestServices.remove(bucket);
-			});
+		int killed = 0;
+		//We are ignoring requests which haven't been ratelimited (yet)
+		for (RequestFuture<?> future : waiting) {
+			if (waiting.remove(future)) {
+				future.cancel(true);
+				incompleteRequests.decrementAndGet();
+				killed++;
+			}
+		}
+		return killed;
+	}
+
+	/**
+	 * Called by Discord4J's request system when a request has to wait for a rate limit permit. If the calling thread is
+	 * attempting a buffered request, the attempt is abandoned and retried once the permit is granted. Otherwise this
+	 * does nothing and the caller should wait for the permit itself.
+	 *
+	 * @param bucket The rate limit bucket of the request.
+	 * @param permit The future which is completed when the permit is granted.
+	 * @param abandon Returns the permit to its bucket as soon as it is granted, if the retry does not use it.
+	 * @throws RateLimitException If the calling thread is attempting a buffered request.
+	 */
+	public static void deferUntilPermitted(String bucket, CompletableFuture<Void> permit, Runnable abandon) {
+		RequestFuture<?> future = attempting.get();
+		if (future == null) return;
+
+		if (future.deferral != null) future.deferral.abandon.run(); //The request caught the previous exception
+		future.deferral = new Deferral(bucket, permit, abandon);
+		throw new RateLimitException("Waiting for a permit in bucket " + bucket, 0, bucket, false);
+	}
+
+	/**
+	 * Called by Discord4J's request system before it requests a rate limit permit. If the calling thread is retrying a
+	 * buffered request which was {@link #deferUntilPermitted(String, CompletableFuture, Runnable) deferred} for the
+	 * given bucket, the permit it was granted is handed over.
+	 *
+	 * @param bucket The rate limit bucket of the request.
+	 * @return The granted permit, or null if the request has to request a new one.
+	 */
+	public static CompletableFuture<Void> claimPermit(String bucket) {
+		RequestFuture<?> future = attempting.get();
+		Deferral granted = future == null ? null : future.granted;
+		if (granted == null || granted.claimed || !granted.bucket.equals(bucket))
+			return null;
+
+		granted.claimed = true;
+		return granted.permit;
+	}
+
+	/**
+	 * Attempts a request and schedules its retry if it was rate limited.
+	 *
+	 * @param future The future of the request.
+	 */
+	private static <T> void attempt(RequestFuture<T> future) {
+		Deferral granted = future.deferral;
+		future.deferral = null;
+		future.granted = granted;
+		try {
+			if (!future.isCancelled()) {
+				attempting.set(future);
+				future.priority.run(future::run); //Requests made by the attempt inherit its priority
+			}
+		} catch (Exception e) {
+			Discord4J.LOGGER.error(LogMarkers.UTIL, "Exception caught while attempting to execute a request", e);
+		} finally {
+			attempting.remove();
+			future.granted = null;
+			if (granted != null && !granted.claimed) granted.abandon.run();
 		}
-		synchronized (requests) {
-			requests.values().forEach(futures -> futures.forEach(future -> future.cancel(true)));
-			requests.clear();
+
+		Deferral deferral = future.deferral;
+		if (future.callable.rateLimited && !future.isCancelled()) {
+			future.backing = new FutureTask<>(future.callable);
+			waiting.add(future);
+			if (deferral != null) {
+				deferral.permit.whenComplete((v, e) -> executor.execute(() -> retry(future)));
+			} else {
+				Discord4J.LOGGER.debug(LogMarkers.UTIL, "Attempted request rate-limited, queueing retry in {}ms",
+						future.getDelay(TimeUnit.MILLISECONDS));
+				executor.schedule(() -> retry(future), Math.max(0, future.getDelay(TimeUnit.MILLISECONDS)), TimeUnit.MILLISECONDS);
+			}
+			return;
+		}
+
+		if (deferral != null) deferral.abandon.run(); //The request caught the exception and completed anyway
+		incompleteRequests.decrementAndGet();
+	}
+
+	/**
+	 * Retries a rate-limited request, unless it was killed while it was waiting.
+	 *
+	 * @param future The future of the request.
+	 */
+	private static void retry(RequestFuture<?> future) {
+		if (waiting.remove(future)) {
+			attempt(future);
+		} else if (future.deferral != null) {
+			future.deferral.abandon.run();
 		}
-		return toKill;
 	}
 
 	/**
@@ -162,12 +306,22 @@ public class RequestBuffer {
 	public static class RequestFuture<T> implements Future<T>, Delayed {
 
 		private final IRequest<T> request;
+		private final RequestPriority priority;
 		private final RequestCallable<T> callable;
 		private volatile FutureTask<T> backing;
+		/**
+		 * The permit the request is waiting for before its next attempt.
+		 */
+		private volatile Deferral deferral;
+		/**
+		 * The permit granted to the current attempt.
+		 */
+		private volatile Deferral granted;
 		final StampedLock lock = new StampedLock();
 
-		RequestFuture(IRequest<T> request) {
+		RequestFuture(IRequest<T> request, RequestPriority priority) {
 			this.request = request;
+			this.priority = priority;
 			this.callable = new RequestCallable<>(request, this);
 			backing = new FutureTask<>(callable);
 		}
@@ -186,6 +340,15 @@ public class RequestBuffer {
 			return unit.convert(callable.timeForNextRequest-System.currentTimeMillis(), TimeUnit.MILLISECONDS);
 		}
 
+		/**
+		 * Gets the priority of the request.
+		 *
+		 * @return The priority of the request.
+		 */
+		public RequestPriority getPriority() {
+			return priority;
+		}
+
 		/**
 		 * Gets the bucket the request was ratelimited for.
 		 *
@@ -278,6 +441,7 @@ public class RequestBuffer {
 
 			@Override
 			public T call() {
+				rateLimited = false;
 				try {
 					if (!firstAttempt)
 						request.onRetry(future);
@@ -307,54 +471,22 @@ public class RequestBuffer {
 	}
 
 	/**
-	 * Manages request futures to ensure it executes the request eventually.
+	 * A rate limit permit which a buffered request is waiting for.
 	 */
-	private static class RequestRunnable implements Runnable {
+	private static class Deferral {
 
-		private final String bucket;
+		final String bucket;
+		final CompletableFuture<Void> permit;
+		final Runnable abandon;
+		/**
+		 * Whether a retry of the request has used the permit.
+		 */
+		volatile boolean claimed;
 
-		private RequestRunnable(String bucket) {
+		Deferral(String bucket, CompletableFuture<Void> permit, Runnable abandon) {
 			this.bucket = bucket;
-		}
-
-		@Override
-		public void run() {
-			synchronized (requests) {
-				try {
-					List<RequestFuture> futures = requests.get(bucket);
-
-					if (futures != null) {
-						List<RequestFuture> futuresToRetry = new CopyOnWriteArrayList<>();
-
-						futures.forEach((RequestFuture future) -> {
-							try {
-								if (!future.isCancelled()) {
-									future.run();
-									if (future.callable.rateLimited) {
-										future.backing = new FutureTask<>(future.callable);
-										futuresToRetry.add(future);
-									}
-								}
-							} catch (Exception e) {
-								Discord4J.LOGGER.error(LogMarkers.UTIL, "Exception caught while attempting to execute a request", e);
-							}
-						});
-
-						if (futuresToRetry.size() > 0) {
-							long delay = Math.max(0, futuresToRetry.get(0).getDelay(TimeUnit.MILLISECONDS));
-							requests.replace(bucket, futuresToRetry);
-							synchronized (requestServices) {
-								requestServices.get(bucket).schedule(new RequestRunnable(bucket), delay, TimeUnit.MILLISECONDS);
-							}
-						} else {
-							requests.remove(bucket);
-							requestServices.remove(bucket).shutdownNow();
-						}
-					}
-				} catch (Exception e) {
-					Discord4J.LOGGER.error(LogMarkers.UTIL, "Exception caught while attempting to retry requests", e);
-				}
-			}
+			this.permit = permit;
+			this.abandon = abandon;
 		}
 	}
 }
@@ -0,0 +1,86 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.util;
+
+import java.util.function.Supplier;
+
+/**
+ * The priority of a REST request. When requests are waiting for the same rate limit, those with a higher priority are
+ * sent first.
+ *
+ * <p>Requests are made with the priority of the thread making them, which is {@link #NORMAL} unless changed with
+ * {@link #run(Runnable)} or {@link #call(Supplier)}:
+ * <pre>{@code
+ * RequestPriority.INTERACTIVE.run(() -> channel.sendMessage("Pong!"));
+ * }</pre>
+ */
+public enum RequestPriority {
+
+	/**
+	 * Latency-sensitive requests, such as replies to commands.
+	 */
+	INTERACTIVE,
+	/**
+	 * The default priority.
+	 */
+	NORMAL,
+	/**
+	 * Background requests, such as mass role assignment or message cleanup, which may be delayed in favor of others.
+	 */
+	BULK;
+
+	private static final ThreadLocal<RequestPriority> CURRENT = ThreadLocal.withInitial(() -> NORMAL);
+
+	/**
+	 * Gets the priority of requests made on the current thread.
+	 *
+	 * @return The priority of requests made on the current thread.
+	 */
+	public static RequestPriority current() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * Executes an action on the current thread, making any requests it performs with this priority.
+	 *
+	 * @param action The action to execute.
+	 */
+	public void run(Runnable action) {
+		call(() -> {
+			action.run();
+			return null;
+		});
+	}
+
+	/**
+	 * Executes an action on the current thread, making any requests it performs with this priority.
+	 *
+	 * @param action The action to execute.
+	 * @param <T> The type of the object returned by the action.
+	 * @return The object returned by the action.
+	 */
+	public <T> T call(Supplier<T> action) {
+		RequestPriority previous = CURRENT.get();
+		CURRENT.set(this);
+		try {
+			return action.get();
+		} finally {
+			CURRENT.set(previous);
+		}
+	}
+}
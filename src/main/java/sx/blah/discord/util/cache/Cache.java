@@ -22,15 +22,13 @@ import com.koloboke.function.LongObjConsumer;
 import com.koloboke.function.LongObjFunction;
 import com.koloboke.function.LongObjPredicate;
 import sx.blah.discord.api.internal.DiscordClientImpl;
-import sx.blah.discord.handle.obj.IIDLinkedObject;
+import sx.blah.discord.handle.obj.*;
 
-import java.util.Collection;
-import java.util.Collections;
-import java.util.Iterator;
-import java.util.Optional;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
@@ -49,20 +47,50 @@ public final class Cache<T extends IIDLinkedObject> implements Iterable<T> {
 	 * A cache delegate provider which stores nothing.
 	 */
 	public static final ICacheDelegateProvider IGNORING_PROVIDER = new IgnoringCacheDelegateProvider();
+	/**
+	 * A cache delegate provider whose caches can be read without locking. It provides a {@link SnapshotCacheDelegate}
+	 * for rarely modified objects (roles, emojis, channels, webhooks and permission overrides) and a
+	 * {@link ConcurrentCacheDelegate} for everything else.
+	 */
+	public static final ICacheDelegateProvider CONCURRENT_PROVIDER = new ConcurrentCacheDelegateProvider();
+	/**
+	 * A cache delegate provider which stores messages off-heap with an {@link OffHeapMessageCacheDelegate} and behaves
+	 * like {@link #DEFAULT_PROVIDER} for everything else. Each channel keeps up to
+	 * {@link OffHeapMessageCacheDelegate#DEFAULT_MAX_CAPACITY} bytes of messages.
+	 */
+	public static final ICacheDelegateProvider OFF_HEAP_MESSAGE_PROVIDER = new OffHeapMessageCacheDelegateProvider(DEFAULT_PROVIDER);
 
 	/**
 	 * The cache's underlying delegate.
 	 */
 	private volatile ICacheDelegate<T> delegate;
+	/**
+	 * The index which is kept up to date with the contents of the cache. This is null if the cache is not indexed.
+	 */
+	private volatile SnowflakeIndex index;
+	/**
+	 * The type of objects in the cache, used to distinguish them in the {@link #index}.
+	 */
+	private final Class<T> type;
 
 	public Cache(ICacheDelegate<T> delegate) {
-		this.delegate = delegate;
+		this(delegate, null, null);
 	}
 
 	public Cache(DiscordClientImpl client, Class<T> self) {
 		this(client.getCacheProvider().provide(self));
 	}
 
+	public Cache(DiscordClientImpl client, Class<T> self, SnowflakeIndex index) {
+		this(client.getCacheProvider().provide(self), self, index);
+	}
+
+	public Cache(ICacheDelegate<T> delegate, Class<T> self, SnowflakeIndex index) {
+		this.delegate = delegate;
+		this.type = self;
+		this.index = index;
+	}
+
 	/**
 	 * Sets the cache's delegate.
 	 *
@@ -71,7 +99,43 @@ public final class Cache<T extends IIDLinkedObject> implements Iterable<T> {
 	 * @param delegate The new delegate.
 	 */
 	public void setDelegate(ICacheDelegate<T> delegate) {
+		SnowflakeIndex previousIndex = indexFor(this.delegate);
+		if (previousIndex != null) this.delegate.values().forEach(value -> previousIndex.release(value.getLongID(), type));
 		this.delegate = delegate;
+		SnowflakeIndex index = indexFor(delegate);
+		if (index != null) delegate.values().forEach(value -> index.add(value, type, false));
+	}
+
+	/**
+	 * Removes every object in the cache from its {@link SnowflakeIndex} and stops updating the index. The contents of
+	 * the cache are left untouched. This should be called when the owner of the cache is discarded so the index does
+	 * not keep the cache's objects alive.
+	 */
+	public void unindex() {
+		SnowflakeIndex index = indexFor(delegate);
+		this.index = null;
+		if (index != null) delegate.values().forEach(value -> index.release(value.getLongID(), type));
+	}
+
+	/**
+	 * Gets whether the objects in the cache are kept in a {@link SnowflakeIndex}. If they are not, an object which is
+	 * missing from the index may still be in the cache.
+	 *
+	 * @return Whether the cache is indexed.
+	 */
+	public boolean isIndexed() {
+		return indexFor(delegate) != null;
+	}
+
+	/**
+	 * Gets the index which is kept up to date with the contents of the given delegate. A delegate which constructs a
+	 * new object on every retrieval is never indexed, because the index would keep every object stored in it alive.
+	 *
+	 * @param delegate The delegate of the cache.
+	 * @return The index, or null if the delegate is not indexed.
+	 */
+	private SnowflakeIndex indexFor(ICacheDelegate<T> delegate) {
+		return delegate instanceof OffHeapMessageCacheDelegate ? null : index;
 	}
 
 	/**
@@ -194,7 +258,13 @@ public final class Cache<T extends IIDLinkedObject> implements Iterable<T> {
 	 * @return The previous object that had the same ID or null if there was not one.
 	 */
 	public T put(T value) {
-		return delegate.put(value).orElse(null);
+		T previous = delegate.put(value).orElse(null);
+		SnowflakeIndex index = indexFor(delegate);
+		if (index != null) {
+			if (previous != null || delegate.contains(value.getLongID())) index.add(value, type, previous != null);
+			else index.discard(value.getLongID(), type);
+		}
+		return previous;
 	}
 
 	/**
@@ -233,11 +303,11 @@ public final class Cache<T extends IIDLinkedObject> implements Iterable<T> {
 	 */
 	public T remove(Object obj) {
 		if (obj instanceof String) {
-			return delegate.remove((String) obj).orElse(null);
+			return released(delegate.remove((String) obj).orElse(null));
 		} else if (obj instanceof Long) {
-			return delegate.remove((Long) obj).orElse(null);
+			return released(delegate.remove((Long) obj).orElse(null));
 		} else if (obj instanceof IIDLinkedObject) {
-			return delegate.remove((T) obj).orElse(null);
+			return released(delegate.remove((T) obj).orElse(null));
 		} else {
 			return null;
 		}
@@ -250,7 +320,19 @@ public final class Cache<T extends IIDLinkedObject> implements Iterable<T> {
 	 * @return The object that was removed.
 	 */
 	public T remove(long key) {
-		return delegate.remove(key).orElse(null);
+		return released(delegate.remove(key).orElse(null));
+	}
+
+	/**
+	 * Removes an object which was removed from the cache from the {@link #index}.
+	 *
+	 * @param removed The removed object, or null if nothing was removed.
+	 * @return The removed object.
+	 */
+	private T released(T removed) {
+		SnowflakeIndex index = indexFor(delegate);
+		if (index != null && removed != null) index.release(removed.getLongID(), type);
+		return removed;
 	}
 
 	/**
@@ -270,14 +352,28 @@ public final class Cache<T extends IIDLinkedObject> implements Iterable<T> {
 	 * @return Any objects that were replaced by the operation.
 	 */
 	public Collection<T> putAll(Collection<T> objs) {
-		return delegate.putAll(objs);
+		Collection<T> replaced = delegate.putAll(objs);
+		SnowflakeIndex index = indexFor(delegate);
+		if (index != null) {
+			// IDs which were already in the cache, or appear earlier in objs, don't add a reference to the index
+			Set<Long> present = new HashSet<>();
+			replaced.forEach(obj -> present.add(obj.getLongID()));
+			for (T obj : objs) {
+				boolean isReplacement = !present.add(obj.getLongID());
+				if (isReplacement || delegate.contains(obj.getLongID())) index.add(obj, type, isReplacement);
+				else index.discard(obj.getLongID(), type);
+			}
+		}
+		return replaced;
 	}
 
 	/**
 	 * Clears the cache.
 	 */
 	public void clear() {
-		delegate.clear();
+		Collection<T> cleared = delegate.clear();
+		SnowflakeIndex index = indexFor(delegate);
+		if (index != null) cleared.forEach(value -> index.release(value.getLongID(), type));
 	}
 
 	/**
@@ -433,7 +529,7 @@ public final class Cache<T extends IIDLinkedObject> implements Iterable<T> {
 		public Collection<T> clear() {
 			lock.writeLock().lock();
 			try {
-				Collection<T> cleared = values();
+				Collection<T> cleared = new ArrayList<>(backing.values());
 				backing.clear();
 				return cleared;
 			} finally {
@@ -541,6 +637,342 @@ public final class Cache<T extends IIDLinkedObject> implements Iterable<T> {
 		}
 	}
 
+	/**
+	 * A cache delegate which spreads its objects over several {@link LongMap}s, each guarded by a {@link StampedLock}.
+	 * Reads of a single object use an optimistic read, so they normally don't lock. Writes only contend with writes to
+	 * the same stripe. Keys are never boxed.
+	 *
+	 * <p>Iteration works on a copy, so the cache may be modified while it is iterated.
+	 */
+	public static class ConcurrentCacheDelegate<T extends IIDLinkedObject> implements ICacheDelegate<T> {
+
+		/**
+		 * The number of stripes the objects are spread over. This must be a power of two.
+		 */
+		private static final int STRIPES = 4;
+
+		/**
+		 * The backing maps, selected by the hash of the ID.
+		 */
+		private final Stripe<T>[] stripes;
+
+		@SuppressWarnings("unchecked")
+		public ConcurrentCacheDelegate() {
+			stripes = new Stripe[STRIPES];
+			for (int i = 0; i < STRIPES; i++) stripes[i] = new Stripe<>();
+		}
+
+		public ConcurrentCacheDelegate(LongMap<T> map) {
+			this();
+			map.forEach((long key, T value) -> stripe(key).put(key, value));
+		}
+
+		@Override
+		public Optional<T> retrieve(long id) {
+			return Optional.ofNullable(stripe(id).get(id));
+		}
+
+		@Override
+		public Optional<T> put(T obj) {
+			return Optional.ofNullable(stripe(obj.getLongID()).put(obj.getLongID(), obj));
+		}
+
+		@Override
+		public Optional<T> remove(long id) {
+			return Optional.ofNullable(stripe(id).remove(id));
+		}
+
+		@Override
+		public Collection<T> clear() {
+			Collection<T> cleared = new ArrayList<>();
+			for (Stripe<T> stripe : stripes) stripe.clear(cleared);
+			return cleared;
+		}
+
+		@Override
+		public boolean contains(long id) {
+			return stripe(id).containsKey(id);
+		}
+
+		@Override
+		public int size() {
+			int size = 0;
+			for (Stripe<T> stripe : stripes) size += stripe.size();
+			return size;
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return values().iterator();
+		}
+
+		@Override
+		public LongSet longIDs() {
+			return mapCopy().keySet();
+		}
+
+		@Override
+		public Collection<T> values() {
+			return mapCopy().values();
+		}
+
+		@Override
+		public ICacheDelegate<T> copy() {
+			return new ConcurrentCacheDelegate<>(mapCopy());
+		}
+
+		@Override
+		public LongMap<T> mapCopy() {
+			LongMap<T> copy = LongMap.newMap();
+			for (Stripe<T> stripe : stripes) stripe.copyInto(copy);
+			return copy;
+		}
+
+		@Override
+		public void forEach(LongObjConsumer<? super T> action) {
+			mapCopy().forEach(action);
+		}
+
+		@Override
+		public boolean forEachWhile(LongObjPredicate<? super T> predicate) {
+			return mapCopy().forEachWhile(predicate);
+		}
+
+		@Override
+		public <Z> Z findResult(LongObjFunction<? super T, ? extends Z> function) {
+			AtomicReference<Z> result = new AtomicReference<>();
+			forEachWhile((key, value) -> {
+				Z tmp = function.apply(key, value);
+				if (tmp != null) {
+					result.set(tmp);
+					return false;
+				}
+				return true;
+			});
+			return result.get();
+		}
+
+		private Stripe<T> stripe(long id) {
+			int hash = Long.hashCode(id);
+			hash ^= hash >>> 16;
+			return stripes[hash & (STRIPES - 1)];
+		}
+
+		/**
+		 * A part of a {@link ConcurrentCacheDelegate}.
+		 */
+		private static final class Stripe<T> {
+
+			private final LongMap<T> map = LongMap.newMap();
+			private final StampedLock lock = new StampedLock();
+
+			T get(long id) {
+				long stamp = lock.tryOptimisticRead();
+				if (stamp != 0) {
+					try {
+						T value = map.get(id);
+						if (lock.validate(stamp)) return value;
+					} catch (RuntimeException ignored) {} // The map was modified while it was read, try again with the lock
+				}
+
+				stamp = lock.readLock();
+				try {
+					return map.get(id);
+				} finally {
+					lock.unlockRead(stamp);
+				}
+			}
+
+			boolean containsKey(long id) {
+				long stamp = lock.tryOptimisticRead();
+				if (stamp != 0) {
+					try {
+						boolean contains = map.containsKey(id);
+						if (lock.validate(stamp)) return contains;
+					} catch (RuntimeException ignored) {} // The map was modified while it was read, try again with the lock
+				}
+
+				stamp = lock.readLock();
+				try {
+					return map.containsKey(id);
+				} finally {
+					lock.unlockRead(stamp);
+				}
+			}
+
+			int size() {
+				long stamp = lock.tryOptimisticRead();
+				int size = map.size();
+				if (lock.validate(stamp)) return size;
+
+				stamp = lock.readLock();
+				try {
+					return map.size();
+				} finally {
+					lock.unlockRead(stamp);
+				}
+			}
+
+			T put(long id, T value) {
+				long stamp = lock.writeLock();
+				try {
+					return map.put(id, value);
+				} finally {
+					lock.unlockWrite(stamp);
+				}
+			}
+
+			T remove(long id) {
+				long stamp = lock.writeLock();
+				try {
+					return map.remove(id);
+				} finally {
+					lock.unlockWrite(stamp);
+				}
+			}
+
+			void clear(Collection<T> cleared) {
+				long stamp = lock.writeLock();
+				try {
+					cleared.addAll(map.values());
+					map.clear();
+				} finally {
+					lock.unlockWrite(stamp);
+				}
+			}
+
+			void copyInto(LongMap<T> copy) {
+				long stamp = lock.readLock();
+				try {
+					map.forEach(copy::put);
+				} finally {
+					lock.unlockRead(stamp);
+				}
+			}
+		}
+	}
+
+	/**
+	 * A copy-on-write cache delegate. Every modification replaces the backing map with a modified copy, so reads never
+	 * lock and iterating always sees a consistent snapshot. Only suitable for objects which are rarely modified.
+	 */
+	public static class SnapshotCacheDelegate<T extends IIDLinkedObject> implements ICacheDelegate<T> {
+
+		/**
+		 * The current snapshot. It is never modified after being published.
+		 */
+		private volatile LongMap<T> snapshot;
+
+		public SnapshotCacheDelegate() {
+			this(LongMap.newMap());
+		}
+
+		public SnapshotCacheDelegate(LongMap<T> map) {
+			this.snapshot = LongMap.copyMap(map);
+		}
+
+		@Override
+		public Optional<T> retrieve(long id) {
+			return Optional.ofNullable(snapshot.get(id));
+		}
+
+		@Override
+		public synchronized Optional<T> put(T obj) {
+			LongMap<T> next = LongMap.copyMap(snapshot);
+			T previous = next.put(obj.getLongID(), obj);
+			snapshot = next;
+			return Optional.ofNullable(previous);
+		}
+
+		@Override
+		public synchronized Collection<T> putAll(Collection<T> objs) {
+			LongMap<T> next = LongMap.copyMap(snapshot);
+			List<T> replaced = new ArrayList<>();
+			for (T obj : objs) {
+				T previous = next.put(obj.getLongID(), obj);
+				if (previous != null) replaced.add(previous);
+			}
+			snapshot = next;
+			return replaced;
+		}
+
+		@Override
+		public synchronized Optional<T> remove(long id) {
+			if (!snapshot.containsKey(id)) return Optional.empty();
+
+			LongMap<T> next = LongMap.copyMap(snapshot);
+			T previous = next.remove(id);
+			snapshot = next;
+			return Optional.ofNullable(previous);
+		}
+
+		@Override
+		public synchronized Collection<T> clear() {
+			Collection<T> cleared = snapshot.values();
+			snapshot = LongMap.newMap();
+			return cleared;
+		}
+
+		@Override
+		public boolean contains(long id) {
+			return snapshot.containsKey(id);
+		}
+
+		@Override
+		public int size() {
+			return snapshot.size();
+		}
+
+		@Override
+		public Iterator<T> iterator() {
+			return Collections.unmodifiableCollection(snapshot.values()).iterator();
+		}
+
+		@Override
+		public LongSet longIDs() {
+			return mapCopy().keySet();
+		}
+
+		@Override
+		public Collection<T> values() {
+			return Collections.unmodifiableCollection(snapshot.values());
+		}
+
+		@Override
+		public ICacheDelegate<T> copy() {
+			return new SnapshotCacheDelegate<>(snapshot);
+		}
+
+		@Override
+		public LongMap<T> mapCopy() {
+			return LongMap.copyMap(snapshot);
+		}
+
+		@Override
+		public void forEach(LongObjConsumer<? super T> action) {
+			snapshot.forEach(action);
+		}
+
+		@Override
+		public boolean forEachWhile(LongObjPredicate<? super T> predicate) {
+			return snapshot.forEachWhile(predicate);
+		}
+
+		@Override
+		public <Z> Z findResult(LongObjFunction<? super T, ? extends Z> function) {
+			AtomicReference<Z> result = new AtomicReference<>();
+			snapshot.forEachWhile((key, value) -> {
+				Z tmp = function.apply(key, value);
+				if (tmp != null) {
+					result.set(tmp);
+					return false;
+				}
+				return true;
+			});
+			return result.get();
+		}
+	}
+
 	/**
 	 * A cache delegate which stores nothing.
 	 */
@@ -695,3 +1127,23 @@ class IgnoringCacheDelegateProvider implements ICacheDelegateProvider {
 		return new Cache.IgnoringCacheDelegate<>();
 	}
 }
+
+/**
+ * A cache delegate provider which provides {@link Cache.SnapshotCacheDelegate} for rarely modified objects and
+ * {@link Cache.ConcurrentCacheDelegate} for everything else.
+ */
+class ConcurrentCacheDelegateProvider implements ICacheDelegateProvider {
+
+	/**
+	 * The types of objects which are rarely modified after a guild is created. Only caches of guild channels use
+	 * {@link IChannel}, the shard's private channels are cached as {@link IPrivateChannel} and gain one with every new
+	 * DM, so they must not use a copy-on-write delegate.
+	 */
+	private static final Set<Class<?>> RARELY_MODIFIED = new HashSet<>(Arrays.asList(IRole.class, IEmoji.class,
+			IChannel.class, ICategory.class, IVoiceChannel.class, IWebhook.class, PermissionOverride.class));
+
+	@Override
+	public <T extends IIDLinkedObject> ICacheDelegate<T> provide(Class<T> clazz) {
+		return RARELY_MODIFIED.contains(clazz) ? new Cache.SnapshotCacheDelegate<>() : new Cache.ConcurrentCacheDelegate<>();
+	}
+}
@@ -0,0 +1,374 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.util.cache;
+
+import com.koloboke.collect.set.LongSet;
+import com.koloboke.function.LongObjConsumer;
+import com.koloboke.function.LongObjFunction;
+import com.koloboke.function.LongObjPredicate;
+import sx.blah.discord.api.internal.DiscordUtils;
+import sx.blah.discord.api.internal.json.objects.MessageObject;
+import sx.blah.discord.handle.impl.obj.Channel;
+import sx.blah.discord.handle.obj.IMessage;
+import sx.blah.discord.handle.obj.IPrivateChannel;
+import sx.blah.discord.handle.obj.IUser;
+import sx.blah.discord.util.DiscordException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A cache delegate which stores messages as serialized json in a direct {@link ByteBuffer}, outside of the java heap.
+ * A new {@link IMessage} is constructed from the stored json every time a message is retrieved, so the heap only holds
+ * the location of each message and the messages which are currently in use.
+ *
+ * <p>Messages are appended to the buffer. Removed or replaced messages leave gaps which are compacted away when the
+ * buffer is full, and the buffer is doubled only if the live messages still do not fit. Once the buffer has reached its
+ * maximum capacity, the oldest messages are evicted to make room for new ones.
+ *
+ * <p>The buffers are allocated with {@link ByteBuffer#allocateDirect(int)}, so every channel can use up to its maximum
+ * capacity of direct memory. The JVM limits direct memory to the maximum heap size unless
+ * <code>-XX:MaxDirectMemorySize</code> is set, and allocating beyond the limit throws an {@link OutOfMemoryError}.
+ *
+ * <p>NOTE: Because every retrieval constructs a new object, changes made to a retrieved message are only kept if the
+ * message is put back into the cache. For the same reason, caches using this delegate are never attached to a
+ * {@link SnowflakeIndex}, which would keep every stored message on the heap.
+ *
+ * @see OffHeapMessageCacheDelegateProvider
+ */
+public class OffHeapMessageCacheDelegate implements ICacheDelegate<IMessage> {
+
+	/**
+	 * The initial size of the buffer in bytes.
+	 */
+	private static final int INITIAL_CAPACITY = 4096;
+	/**
+	 * The default largest size the buffer is grown to in bytes. This holds a few thousand typical messages.
+	 */
+	public static final int DEFAULT_MAX_CAPACITY = 4 << 20;
+
+	/**
+	 * The largest size the buffer is grown to in bytes.
+	 */
+	private final int maxCapacity;
+
+	/**
+	 * The location of every message in the buffer, packed as <code>offset &lt;&lt; 32 | length</code>.
+	 */
+	private LongMap<Long> locations = LongMap.newMap();
+	/**
+	 * The lock guarding the buffer and the locations.
+	 */
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+	/**
+	 * The buffer the messages are stored in. This is null until the first message is stored.
+	 */
+	private ByteBuffer buffer;
+	/**
+	 * The offset in the buffer the next message is written at.
+	 */
+	private int writeOffset;
+	/**
+	 * The number of bytes in the buffer which belong to messages that are still cached.
+	 */
+	private int liveBytes;
+	/**
+	 * The channel of the cached messages, which is needed to reconstruct them. This is set by the first message stored.
+	 */
+	private volatile Channel channel;
+
+	public OffHeapMessageCacheDelegate() {
+		this(DEFAULT_MAX_CAPACITY);
+	}
+
+	/**
+	 * @param maxCapacity The largest size the buffer is grown to in bytes.
+	 */
+	public OffHeapMessageCacheDelegate(int maxCapacity) {
+		this.maxCapacity = maxCapacity;
+	}
+
+	@Override
+	public Optional<IMessage> retrieve(long id) {
+		byte[] data;
+		lock.readLock().lock();
+		try {
+			Long location = locations.get(id);
+			if (location == null) return Optional.empty();
+			data = read(location);
+		} finally {
+			lock.readLock().unlock();
+		}
+		return Optional.of(deserialize(data));
+	}
+
+	@Override
+	public Optional<IMessage> put(IMessage obj) {
+		if (channel == null) channel = (Channel) obj.getChannel();
+
+		byte[] previous = store(obj.getLongID(), serialize(obj));
+		return previous == null ? Optional.empty() : Optional.of(deserialize(previous));
+	}
+
+	@Override
+	public Optional<IMessage> remove(long id) {
+		byte[] removed;
+		lock.writeLock().lock();
+		try {
+			Long location = locations.remove(id);
+			if (location == null) return Optional.empty();
+			removed = read(location);
+			liveBytes -= length(location);
+		} finally {
+			lock.writeLock().unlock();
+		}
+		return Optional.of(deserialize(removed));
+	}
+
+	@Override
+	public Collection<IMessage> clear() {
+		List<byte[]> cleared;
+		lock.writeLock().lock();
+		try {
+			cleared = new ArrayList<>(locations.size());
+			locations.forEach((long id, Long location) -> cleared.add(read(location)));
+			locations = LongMap.newMap();
+			buffer = null;
+			writeOffset = 0;
+			liveBytes = 0;
+		} finally {
+			lock.writeLock().unlock();
+		}
+		List<IMessage> messages = new ArrayList<>(cleared.size());
+		cleared.forEach(data -> messages.add(deserialize(data)));
+		return messages;
+	}
+
+	@Override
+	public boolean contains(long id) {
+		lock.readLock().lock();
+		try {
+			return locations.containsKey(id);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return locations.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public LongSet longIDs() {
+		lock.readLock().lock();
+		try {
+			return LongMap.copyMap(locations).keySet();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Collection<IMessage> values() {
+		List<IMessage> values = new ArrayList<>();
+		forEach((long id, IMessage message) -> values.add(message));
+		return values;
+	}
+
+	@Override
+	public Iterator<IMessage> iterator() {
+		return values().iterator();
+	}
+
+	@Override
+	public ICacheDelegate<IMessage> copy() {
+		OffHeapMessageCacheDelegate copy = new OffHeapMessageCacheDelegate(maxCapacity);
+		copy.channel = channel;
+		snapshot().forEach((long id, byte[] data) -> copy.store(id, data));
+		return copy;
+	}
+
+	@Override
+	public LongMap<IMessage> mapCopy() {
+		LongMap<IMessage> map = LongMap.newMap();
+		forEach(map::put);
+		return map;
+	}
+
+	@Override
+	public void forEach(LongObjConsumer<? super IMessage> action) {
+		snapshot().forEach((long id, byte[] data) -> action.accept(id, deserialize(data)));
+	}
+
+	@Override
+	public boolean forEachWhile(LongObjPredicate<? super IMessage> predicate) {
+		return snapshot().forEachWhile((long id, byte[] data) -> predicate.test(id, deserialize(data)));
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <Z> Z findResult(LongObjFunction<? super IMessage, ? extends Z> function) {
+		Object[] result = new Object[1];
+		snapshot().forEachWhile((long id, byte[] data) -> (result[0] = function.apply(id, deserialize(data))) == null);
+		return (Z) result[0];
+	}
+
+	/**
+	 * Stores a serialized message, replacing the message with the same ID.
+	 *
+	 * @param id The ID of the message.
+	 * @param data The serialized message.
+	 * @return The serialized message which was replaced, or null if there was not one.
+	 * @throws DiscordException If the message is larger than the maximum capacity of the buffer.
+	 */
+	private byte[] store(long id, byte[] data) {
+		if (data.length > maxCapacity)
+			throw new DiscordException("Message " + Long.toUnsignedString(id) + " does not fit in the off-heap message cache!");
+
+		lock.writeLock().lock();
+		try {
+			Long previous = locations.remove(id);
+			byte[] replaced = null;
+			if (previous != null) {
+				replaced = read(previous);
+				liveBytes -= length(previous);
+			}
+
+			ensureCapacity(data.length);
+			buffer.position(writeOffset);
+			buffer.put(data);
+			locations.put(id, ((long) writeOffset << 32) | data.length);
+			writeOffset += data.length;
+			liveBytes += data.length;
+			return replaced;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Makes room for the given number of bytes at the end of the buffer, by compacting the stored messages into a new
+	 * buffer if needed. If the stored messages would not leave enough room in a buffer of the maximum capacity, the
+	 * oldest are evicted. Must be called while holding the write lock.
+	 *
+	 * @param length The number of bytes to make room for. This must not be more than the maximum capacity.
+	 */
+	private void ensureCapacity(int length) {
+		if (buffer != null && buffer.capacity() - writeOffset >= length) return;
+
+		if ((long) liveBytes + length > maxCapacity) {
+			long[] ids = locations.keySet().toLongArray();
+			Arrays.sort(ids); //Lowest id should be the earliest
+			for (int i = 0; liveBytes + length > maxCapacity; i++)
+				liveBytes -= length(locations.remove(ids[i]));
+		}
+
+		int capacity = Math.min(INITIAL_CAPACITY, maxCapacity);
+		while (capacity < (liveBytes + length) * 2L && capacity < maxCapacity) capacity = (int) Math.min(capacity * 2L, maxCapacity);
+		ByteBuffer compacted = ByteBuffer.allocateDirect(capacity);
+
+		LongMap<Long> moved = LongMap.newMap();
+		locations.forEach((long id, Long location) -> {
+			moved.put(id, ((long) compacted.position() << 32) | length(location));
+			compacted.put(read(location));
+		});
+
+		locations = moved;
+		buffer = compacted;
+		writeOffset = compacted.position();
+	}
+
+	/**
+	 * Copies the serialized messages out of the buffer, so they can be deserialized without holding the lock.
+	 *
+	 * @return The serialized messages, keyed by ID.
+	 */
+	private LongMap<byte[]> snapshot() {
+		lock.readLock().lock();
+		try {
+			LongMap<byte[]> snapshot = LongMap.newMap();
+			locations.forEach((long id, Long location) -> snapshot.put(id, read(location)));
+			return snapshot;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Copies a serialized message out of the buffer. Must be called while holding the lock.
+	 *
+	 * @param location The packed location of the message.
+	 * @return The serialized message.
+	 */
+	private byte[] read(long location) {
+		byte[] data = new byte[length(location)];
+		ByteBuffer view = buffer.duplicate(); // Readers share the lock, so they must not move the buffer's position
+		view.position((int) (location >>> 32));
+		view.get(data);
+		return data;
+	}
+
+	private static int length(long location) {
+		return (int) location;
+	}
+
+	private static byte[] serialize(IMessage message) {
+		try {
+			return DiscordUtils.MAPPER.writeValueAsBytes(DiscordUtils.getJSONFromMessage(message));
+		} catch (IOException e) {
+			throw new DiscordException("Unable to serialize message!", e);
+		}
+	}
+
+	/**
+	 * Reconstructs a message from its serialized form. The author is taken from the cache when possible so that stale
+	 * user information stored with the message is never applied to the cached user.
+	 *
+	 * @param data The serialized message.
+	 * @return The reconstructed message.
+	 */
+	private IMessage deserialize(byte[] data) {
+		MessageObject json;
+		try {
+			json = DiscordUtils.MAPPER.readValue(data, MessageObject.class);
+		} catch (IOException e) {
+			throw new DiscordException("Unable to deserialize message!", e);
+		}
+
+		long authorID = Long.parseUnsignedLong(json.author.id);
+		IUser author = channel.getShard().getUserByID(authorID);
+		if (author == null && channel.isPrivate() && ((IPrivateChannel) channel).getRecipient().getLongID() == authorID)
+			author = ((IPrivateChannel) channel).getRecipient();
+		if (author == null) author = DiscordUtils.getUserFromJSON(channel.getShard(), json.author);
+		return DiscordUtils.getMessageFromJSON(channel, author, json);
+	}
+}
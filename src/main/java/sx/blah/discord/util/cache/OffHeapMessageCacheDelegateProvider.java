@@ -0,0 +1,67 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.util.cache;
+
+import sx.blah.discord.handle.obj.IIDLinkedObject;
+import sx.blah.discord.handle.obj.IMessage;
+
+/**
+ * A cache delegate provider which stores messages off-heap using {@link OffHeapMessageCacheDelegate} and uses another
+ * provider for everything else. This allows a deep message history to be kept per channel without it adding to the
+ * work of the garbage collector.
+ *
+ * <p>Each channel's messages are kept in a direct buffer of up to the provider's maximum capacity, and the oldest
+ * messages are evicted once it is full. The direct memory used is bounded by the number of channels times the maximum
+ * capacity, which must fit in the JVM's direct memory limit. Set <code>-XX:MaxDirectMemorySize</code> accordingly
+ * when keeping a deep history for many channels.
+ */
+public class OffHeapMessageCacheDelegateProvider implements ICacheDelegateProvider {
+
+	/**
+	 * The provider used for everything other than messages.
+	 */
+	private final ICacheDelegateProvider fallback;
+	/**
+	 * The largest size in bytes the message buffer of each channel is grown to.
+	 */
+	private final int maxCapacity;
+
+	public OffHeapMessageCacheDelegateProvider() {
+		this(Cache.DEFAULT_PROVIDER);
+	}
+
+	public OffHeapMessageCacheDelegateProvider(ICacheDelegateProvider fallback) {
+		this(fallback, OffHeapMessageCacheDelegate.DEFAULT_MAX_CAPACITY);
+	}
+
+	/**
+	 * @param fallback The provider used for everything other than messages.
+	 * @param maxCapacity The largest size in bytes the message buffer of each channel is grown to.
+	 */
+	public OffHeapMessageCacheDelegateProvider(ICacheDelegateProvider fallback, int maxCapacity) {
+		if (maxCapacity <= 0) throw new IllegalArgumentException("maxCapacity must be positive");
+		this.fallback = fallback;
+		this.maxCapacity = maxCapacity;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <T extends IIDLinkedObject> ICacheDelegate<T> provide(Class<T> clazz) {
+		return clazz == IMessage.class ? (ICacheDelegate<T>) new OffHeapMessageCacheDelegate(maxCapacity) : fallback.provide(clazz);
+	}
+}
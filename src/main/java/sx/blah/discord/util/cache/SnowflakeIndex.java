@@ -0,0 +1,170 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.util.cache;
+
+import sx.blah.discord.handle.obj.IIDLinkedObject;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongFunction;
+
+/**
+ * An index from snowflake IDs to the objects stored in any of the {@link Cache caches} which are attached to it.
+ *
+ * <p>Caches attach to an index through {@link Cache#Cache(ICacheDelegate, Class, SnowflakeIndex)} and keep it up to
+ * date as objects are put into and removed from them. This allows an object to be found by its ID with a single hash
+ * lookup instead of searching every cache which could contain it.
+ *
+ * <p>An object may be stored in several caches at once (for example, a user is stored in the user cache of every guild
+ * they share with the bot). The index counts how many attached caches contain each ID and only forgets the ID when
+ * the last of them removes it.
+ */
+public final class SnowflakeIndex {
+
+	/**
+	 * The indexed objects, keyed by the type of the cache they were stored in and then by ID.
+	 */
+	private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<Long, Entry>> types = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the object with the given ID if it was stored in a cache of the given type.
+	 *
+	 * @param id The ID of the object.
+	 * @param type The type of the cache the object was stored in.
+	 * @param <T> The type of the object.
+	 * @return The object with the given ID, or null if no attached cache of the given type contains it.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends IIDLinkedObject> T get(long id, Class<T> type) {
+		ConcurrentHashMap<Long, Entry> entries = types.get(type);
+		Entry entry = entries == null ? null : entries.get(id);
+		return entry == null ? null : (T) entry.value;
+	}
+
+	/**
+	 * Gets the object with the given ID if it was stored in a cache of the given type, or creates it if it was not.
+	 * This is atomic, so threads which intern the same ID concurrently all get the same object.
+	 *
+	 * <p>A created object is returned by {@link #get(long, Class)} straight away, but it is not referenced by any cache
+	 * yet. The caller must put it into an attached cache of the given type, which adds the reference. If that cache
+	 * does not store it, the cache forgets it again.
+	 *
+	 * @param id The ID of the object.
+	 * @param type The type of the cache the object will be stored in.
+	 * @param factory Creates the object if no object with the ID is indexed.
+	 * @param <T> The type of the object.
+	 * @return The indexed object with the given ID.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends IIDLinkedObject> T intern(long id, Class<T> type, LongFunction<? extends T> factory) {
+		return (T) types.computeIfAbsent(type, t -> new ConcurrentHashMap<>())
+				.computeIfAbsent(id, key -> new Entry(factory.apply(key), 0)).value;
+	}
+
+	/**
+	 * Gets every object which is stored in an attached cache of the given type. Each object appears once no matter
+	 * how many caches contain it.
+	 *
+	 * @param type The type of the caches the objects were stored in.
+	 * @param <T> The type of the objects.
+	 * @return A new list of the objects stored in caches of the given type.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T extends IIDLinkedObject> List<T> values(Class<T> type) {
+		ConcurrentHashMap<Long, Entry> entries = types.get(type);
+		List<T> values = new ArrayList<>(entries == null ? 0 : entries.size());
+		if (entries != null) entries.values().forEach(entry -> values.add((T) entry.value));
+		return values;
+	}
+
+	/**
+	 * Gets the number of IDs in the index.
+	 *
+	 * @return The number of IDs in the index.
+	 */
+	public int size() {
+		return types.values().stream().mapToInt(ConcurrentHashMap::size).sum();
+	}
+
+	/**
+	 * Removes every ID from the index.
+	 */
+	public void clear() {
+		types.clear();
+	}
+
+	/**
+	 * Records that a cache of the given type now contains the given object. If <code>replaced</code> is true, the
+	 * cache already contained an object with the same ID and the reference count is left unchanged.
+	 *
+	 * @param value The object which was stored.
+	 * @param type The type of the cache the object was stored in.
+	 * @param replaced Whether the object replaced one with the same ID in the same cache.
+	 */
+	void add(IIDLinkedObject value, Class<?> type, boolean replaced) {
+		types.computeIfAbsent(type, t -> new ConcurrentHashMap<>()).compute(value.getLongID(), (id, entry) -> {
+			if (entry == null) return new Entry(value, 1);
+			entry.value = value;
+			if (!replaced) entry.references++;
+			return entry;
+		});
+	}
+
+	/**
+	 * Records that a cache of the given type no longer contains the object with the given ID.
+	 *
+	 * @param id The ID of the object which was removed.
+	 * @param type The type of the cache the object was removed from.
+	 */
+	void release(long id, Class<?> type) {
+		ConcurrentHashMap<Long, Entry> entries = types.get(type);
+		if (entries != null) entries.computeIfPresent(id, (key, entry) -> --entry.references > 0 ? entry : null);
+	}
+
+	/**
+	 * Forgets an {@link #intern(long, Class, LongFunction) interned} object which was never stored by a cache.
+	 *
+	 * @param id The ID of the object.
+	 * @param type The type of the cache the object was not stored in.
+	 */
+	void discard(long id, Class<?> type) {
+		ConcurrentHashMap<Long, Entry> entries = types.get(type);
+		if (entries != null) entries.computeIfPresent(id, (key, entry) -> entry.references > 0 ? entry : null);
+	}
+
+	/**
+	 * An indexed object and the number of attached caches containing it.
+	 */
+	private static final class Entry {
+
+		/**
+		 * The most recently stored object with the ID.
+		 */
+		volatile IIDLinkedObject value;
+		/**
+		 * The number of attached caches containing the ID. Only accessed while the map holds the entry's lock.
+		 */
+		int references;
+
+		Entry(IIDLinkedObject value, int references) {
+			this.value = value;
+			this.references = references;
+		}
+	}
+}
@@ -0,0 +1,151 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord;
+
+import sx.blah.discord.handle.impl.obj.Guild;
+import sx.blah.discord.handle.impl.obj.VoiceState;
+import sx.blah.discord.handle.obj.IIDLinkedObject;
+import sx.blah.discord.handle.obj.IVoiceState;
+import sx.blah.discord.util.IDLinkedObjectWrapper;
+import sx.blah.discord.util.cache.Cache;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Supplier;
+
+/**
+ * Compares the heap used by member data in the per-user cache layout (a roles, nicks and voice state cache on every
+ * user plus a join time cache on every guild) to the layout using {@link Guild.Member} records.
+ *
+ * <p>Usage: <code>MemberMemoryBenchmark [users] [guilds per user] [roles per member]</code>. Run each layout in a fresh
+ * JVM for the most stable numbers by passing <code>-Dlayout=cache</code> or <code>-Dlayout=member</code>.
+ */
+public class MemberMemoryBenchmark {
+
+	private static final int GUILDS = 16;
+
+	/**
+	 * Keeps the layout being measured reachable.
+	 */
+	private static volatile Object retained;
+
+	public static void main(String[] args) {
+		int users = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+		int guildsPerUser = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		int rolesPerMember = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		String layout = System.getProperty("layout", "both");
+
+		if (!layout.equals("member")) report("cache", users * guildsPerUser, measure(() -> cacheLayout(users, guildsPerUser, rolesPerMember)));
+		if (!layout.equals("cache")) report("member", users * guildsPerUser, measure(() -> memberLayout(users, guildsPerUser, rolesPerMember)));
+	}
+
+	/**
+	 * Builds the member data as it was stored before {@link Guild.Member} records.
+	 */
+	private static Object cacheLayout(int users, int guildsPerUser, int rolesPerMember) {
+		Object[] roles = new Object[GUILDS * rolesPerMember];
+		Arrays.setAll(roles, i -> new Object());
+		List<Cache<IIDLinkedObject>> joinTimes = new ArrayList<>();
+		for (int i = 0; i < GUILDS; i++) joinTimes.add(new Cache<>(new Cache.MapCacheDelegate<>()));
+
+		List<Object> retained = new ArrayList<>(users);
+		for (long user = 0; user < users; user++) {
+			Cache<IDLinkedObjectWrapper<Collection<Object>>> userRoles = new Cache<>(new Cache.MapCacheDelegate<>());
+			Cache<IDLinkedObjectWrapper<String>> nicks = new Cache<>(new Cache.MapCacheDelegate<>());
+			Cache<IVoiceState> voiceStates = new Cache<>(new Cache.MapCacheDelegate<>());
+
+			for (int i = 0; i < guildsPerUser; i++) {
+				int guild = (int) ((user + i) % GUILDS);
+				Collection<Object> memberRoles = new CopyOnWriteArraySet<>();
+				for (int role = 0; role < rolesPerMember; role++) memberRoles.add(roles[guild * rolesPerMember + role]);
+
+				userRoles.put(new IDLinkedObjectWrapper<>(guild, memberRoles));
+				nicks.put(new IDLinkedObjectWrapper<>(guild, nick(user)));
+				voiceStates.put(new VoiceState(null, null) {
+					@Override
+					public long getLongID() {
+						return guild;
+					}
+				});
+				joinTimes.get(guild).put(new IDLinkedObjectWrapper<>(user, Instant.now()));
+			}
+			retained.add(new Object[] {userRoles, nicks, voiceStates});
+		}
+		retained.add(joinTimes);
+		return retained;
+	}
+
+	/**
+	 * Builds the member data as {@link Guild.Member} records. Users do not allocate a voice state cache until they
+	 * join a voice channel, so nothing is stored on the users themselves.
+	 */
+	private static Object memberLayout(int users, int guildsPerUser, int rolesPerMember) {
+		List<Cache<Guild.Member>> members = new ArrayList<>();
+		for (int i = 0; i < GUILDS; i++) members.add(new Cache<>(new Cache.MapCacheDelegate<>()));
+
+		for (long user = 0; user < users; user++) {
+			for (int i = 0; i < guildsPerUser; i++) {
+				int guild = (int) ((user + i) % GUILDS);
+				long[] roleIDs = new long[rolesPerMember];
+				for (int role = 0; role < rolesPerMember; role++) roleIDs[role] = guild * rolesPerMember + role;
+
+				members.get(guild).put(new Guild.Member(user, roleIDs, nick(user), Instant.now()));
+			}
+		}
+		return members;
+	}
+
+	/**
+	 * Creates a new nickname string for a user, as parsing it from JSON would.
+	 */
+	private static String nick(long user) {
+		return new String("nickname " + user);
+	}
+
+	/**
+	 * Measures how much the used heap grows while the given layout is alive.
+	 */
+	private static long measure(Supplier<Object> layout) {
+		long before = usedMemory();
+		retained = layout.get();
+		long after = usedMemory();
+		retained = null;
+		return after - before;
+	}
+
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			try {
+				Thread.sleep(100);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	private static void report(String layout, int members, long bytes) {
+		System.out.printf("%-6s layout: %,d bytes for %,d memberships (%,d bytes per membership)%n", layout, bytes, members, bytes / members);
+	}
+}
@@ -0,0 +1,48 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class DispatchLanesTest {
+
+	@Test
+	public void testLaneIsIdleOnceTasksFinish() throws Exception {
+		DispatchLanes lanes = new DispatchLanes("Test Lane", 2);
+		CountDownLatch blocked = new CountDownLatch(1);
+		CountDownLatch finished = new CountDownLatch(1);
+		lanes.execute(1, () -> {
+			try {
+				blocked.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		lanes.execute(1, finished::countDown);
+
+		assertFalse(lanes.isIdle(1));
+		blocked.countDown();
+		assertTrue(finished.await(1, TimeUnit.SECONDS));
+		for (int i = 0; i < 100 && !lanes.isIdle(1); i++) Thread.sleep(10);
+		assertTrue(lanes.isIdle(1));
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.junit.Test;
+import sx.blah.discord.api.internal.json.GatewayPayload;
+import sx.blah.discord.api.internal.json.objects.MessageObject;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class GatewayPayloadReaderTest {
+
+	private static GatewayPayload read(String json) throws IOException {
+		return GatewayPayloadReader.read(DiscordUtils.MAPPER.getFactory().createParser(json), Collections.singleton("TYPING_START"));
+	}
+
+	@Test
+	public void testDispatchDataIsBoundToEventType() throws Exception {
+		GatewayPayload payload = read("{\"op\":0,\"s\":42,\"t\":\"MESSAGE_CREATE\",\"d\":{\"id\":\"1\",\"content\":\"hi\"}}");
+		assertEquals(42, (int) payload.s);
+		assertTrue(payload.d instanceof MessageObject);
+		assertEquals("hi", ((MessageObject) payload.d).content);
+	}
+
+	@Test
+	public void testDataBeforeEventNameIsBuffered() throws Exception {
+		GatewayPayload payload = read("{\"d\":{\"id\":\"1\",\"content\":\"hi\"},\"s\":7,\"extra\":[1,2],\"t\":\"MESSAGE_CREATE\",\"op\":0}");
+		assertEquals("MESSAGE_CREATE", payload.t);
+		assertTrue(payload.d instanceof MessageObject);
+		assertEquals("1", ((MessageObject) payload.d).id);
+	}
+
+	@Test
+	public void testUnusedEventAndOtherOps() throws Exception {
+		assertNull(read("{\"op\":0,\"s\":1,\"t\":\"SOMETHING_NEW\",\"d\":{\"a\":[1,{\"b\":2}]}}").d);
+
+		GatewayPayload ignored = read("{\"op\":0,\"s\":3,\"t\":\"TYPING_START\",\"d\":{\"user_id\":\"1\"}}");
+		assertNull(ignored.d);
+		assertEquals(3, (int) ignored.s);
+
+		GatewayPayload hello = read("{\"t\":null,\"s\":null,\"op\":10,\"d\":{\"heartbeat_interval\":41250}}");
+		assertNull(hello.s);
+		assertEquals(41250, ((JsonNode) hello.d).get("heartbeat_interval").intValue());
+	}
+}
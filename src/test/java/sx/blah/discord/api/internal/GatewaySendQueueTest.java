@@ -0,0 +1,75 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class GatewaySendQueueTest {
+
+	@Test
+	public void testMessagesWaitForAuthenticationAndPresencesAreCoalesced() {
+		List<String> sent = new ArrayList<>();
+		GatewaySendQueue queue = new GatewaySendQueue(sent::add);
+
+		queue.send(GatewayOps.HEARTBEAT, "heartbeat");
+		queue.send(GatewayOps.STATUS_UPDATE, "online");
+		queue.send(GatewayOps.REQUEST_GUILD_MEMBERS, "members");
+		queue.send(GatewayOps.STATUS_UPDATE, "idle");
+		assertEquals(Arrays.asList("heartbeat"), sent);
+
+		queue.send(GatewayOps.IDENTIFY, "identify");
+		assertEquals(Arrays.asList("heartbeat", "identify", "idle", "members"), sent);
+	}
+
+	@Test
+	public void testRateLimitKeepsReservedMessages() {
+		List<String> sent = new ArrayList<>();
+		GatewaySendQueue queue = new GatewaySendQueue(sent::add);
+		queue.send(GatewayOps.IDENTIFY, "identify");
+
+		for (int i = 0; i < GatewaySendQueue.LIMIT; i++) {
+			queue.send(GatewayOps.VOICE_STATE_UPDATE, "voice");
+		}
+		assertEquals(GatewaySendQueue.LIMIT - GatewaySendQueue.RESERVED, sent.size());
+
+		queue.send(GatewayOps.HEARTBEAT, "heartbeat");
+		assertEquals("heartbeat", sent.get(sent.size() - 1));
+	}
+
+	@Test
+	public void testReservedMessagesNeverExceedLimit() {
+		List<String> sent = new ArrayList<>();
+		GatewaySendQueue queue = new GatewaySendQueue(sent::add);
+		queue.send(GatewayOps.IDENTIFY, "identify");
+
+		for (int i = 0; i < GatewaySendQueue.LIMIT; i++) {
+			queue.send(GatewayOps.VOICE_STATE_UPDATE, "voice");
+			if (i % 10 == 0) queue.send(GatewayOps.HEARTBEAT, "heartbeat");
+		}
+		for (int i = 0; i < GatewaySendQueue.RESERVED * 2; i++) {
+			queue.send(GatewayOps.HEARTBEAT, "heartbeat");
+			queue.send(GatewayOps.VOICE_STATE_UPDATE, "voice");
+		}
+		assertEquals(GatewaySendQueue.LIMIT, sent.size());
+	}
+}
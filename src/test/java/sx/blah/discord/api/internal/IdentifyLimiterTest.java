@@ -0,0 +1,45 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.api.internal;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class IdentifyLimiterTest {
+
+	@Test
+	public void testIdentifiesAreSpacedPerBucket() {
+		IdentifyLimiter limiter = new IdentifyLimiter();
+		limiter.setMaxConcurrency(2);
+
+		assertEquals(0, limiter.reserve(0, 1000));
+		assertEquals(0, limiter.reserve(1, 1000));
+		assertEquals(IdentifyLimiter.IDENTIFY_DELAY, limiter.reserve(2, 1000));
+		assertEquals(IdentifyLimiter.IDENTIFY_DELAY - 1000, limiter.reserve(3, 2000));
+		assertEquals(2 * IdentifyLimiter.IDENTIFY_DELAY, limiter.reserve(4, 1000));
+	}
+
+	@Test
+	public void testSlotsAreFreeAfterTheDelay() {
+		IdentifyLimiter limiter = new IdentifyLimiter();
+
+		assertEquals(0, limiter.reserve(0, 0));
+		assertEquals(0, limiter.reserve(1, IdentifyLimiter.IDENTIFY_DELAY));
+		assertEquals(1, limiter.getMaxConcurrency());
+	}
+}
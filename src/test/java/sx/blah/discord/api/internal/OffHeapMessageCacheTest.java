@@ -0,0 +1,192 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import org.junit.Before;
+import org.junit.Test;
+import sx.blah.discord.api.ClientBuilder;
+import sx.blah.discord.handle.impl.obj.*;
+import sx.blah.discord.handle.obj.*;
+import sx.blah.discord.util.DiscordException;
+import sx.blah.discord.util.cache.Cache;
+import sx.blah.discord.util.cache.ICacheDelegate;
+import sx.blah.discord.util.cache.ICacheDelegateProvider;
+import sx.blah.discord.util.cache.OffHeapMessageCacheDelegate;
+
+import java.lang.ref.WeakReference;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class OffHeapMessageCacheTest {
+
+	private ShardImpl shard;
+	private Guild guild;
+	private Channel channel;
+	private User author;
+
+	@Before
+	public void setUp() {
+		setUp((DiscordClientImpl) new ClientBuilder()
+				.withToken("token")
+				.setCacheProvider(Cache.OFF_HEAP_MESSAGE_PROVIDER)
+				.build());
+	}
+
+	private void setUp(DiscordClientImpl client) {
+		shard = new ShardImpl(client, "gateway", new int[] {0, 1}, null);
+		client.getShards().add(shard);
+
+		guild = new Guild(shard, "guild", 1, null, 2, 0, 0, "region", 0, 0);
+		shard.guildCache.put(guild);
+		channel = new Channel(client, "channel", 3, guild, null, 0, false, 0,
+				new Cache<>(client, PermissionOverride.class), new Cache<>(client, PermissionOverride.class));
+		guild.channels.put(channel);
+		author = user(4, "author");
+		guild.users.put(author);
+	}
+
+	@Test
+	public void testGuildMessagesAreNotIndexed() {
+		Message message = message(100, "hello", author);
+		WeakReference<Message> reference = new WeakReference<>(message);
+		channel.messages.put(message);
+		message = null;
+
+		assertNull(shard.index.get(100, IMessage.class));
+		for (int i = 0; i < 10 && reference.get() != null; i++) System.gc();
+		assertNull(reference.get());
+
+		IMessage retrieved = shard.getMessageByID(100);
+		assertEquals("hello", retrieved.getContent());
+		assertSame(author, retrieved.getAuthor());
+		assertNotSame(retrieved, shard.getMessageByID(100));
+	}
+
+	@Test
+	public void testCustomProviderMessagesAreFound() {
+		DiscordClientImpl client = (DiscordClientImpl) new ClientBuilder()
+				.withToken("token")
+				.setCacheProvider(new ICacheDelegateProvider() {
+					@Override
+					@SuppressWarnings("unchecked")
+					public <T extends IIDLinkedObject> ICacheDelegate<T> provide(Class<T> clazz) {
+						return clazz == IMessage.class ? (ICacheDelegate<T>) new OffHeapMessageCacheDelegate(8192) : Cache.DEFAULT_PROVIDER.provide(clazz);
+					}
+				})
+				.build();
+		setUp(client);
+		channel.messages.put(message(100, "hello", author));
+
+		assertFalse(channel.messages.isIndexed());
+		assertEquals("hello", shard.getMessageByID(100).getContent());
+	}
+
+	@Test
+	public void testRoundTrip() {
+		Message message = new Message(shard.getClient(), 100, "hello @everyone", author, channel,
+				Instant.ofEpochSecond(1000), Instant.ofEpochSecond(2000), true, Arrays.asList(4L, 5L),
+				Collections.singletonList(6L), new ArrayList<>(), true, new ArrayList<>(), 7, IMessage.Type.DEFAULT);
+		message.setReactions(new CopyOnWriteArrayList<>(Arrays.asList(
+				new Reaction(message, 3, ReactionEmoji.of("❤")),
+				new Reaction(message, 1, ReactionEmoji.of("custom", 8, true)))));
+		channel.messages.put(message);
+
+		Message retrieved = (Message) channel.messages.get(100);
+		assertEquals("hello @everyone", retrieved.getContent());
+		assertEquals(Instant.ofEpochSecond(1000), retrieved.getTimestamp());
+		assertEquals(Instant.ofEpochSecond(2000), retrieved.getEditedTimestamp().orElse(null));
+		assertTrue(retrieved.mentionsEveryone());
+		// User 5 is not cached, but the mention is kept
+		assertEquals(Arrays.asList(4L, 5L), retrieved.getRawMentionsLong());
+		assertEquals(Collections.singletonList(6L), retrieved.getRawRoleMentionsLong());
+		assertTrue(retrieved.isPinned());
+		assertEquals(7, retrieved.getWebhookLongID());
+
+		List<IReaction> reactions = retrieved.getReactions();
+		assertEquals(2, reactions.size());
+		assertEquals(3, reactions.get(0).getCount());
+		assertEquals(ReactionEmoji.of("❤"), reactions.get(0).getEmoji());
+		assertEquals(1, reactions.get(1).getCount());
+		assertEquals(ReactionEmoji.of("custom", 8, true), reactions.get(1).getEmoji());
+		assertSame(retrieved, reactions.get(0).getMessage());
+	}
+
+	@Test
+	public void testUncachedAuthorIsNotCached() {
+		channel.messages.put(message(100, "hello", user(9, "stranger")));
+
+		IUser retrieved = channel.messages.get(100).getAuthor();
+		assertEquals(9, retrieved.getLongID());
+		assertEquals("stranger", retrieved.getName());
+		assertNull(shard.getUserByID(9));
+		assertEquals(Collections.singletonList(author), shard.index.values(IUser.class));
+	}
+
+	@Test
+	public void testCompaction() {
+		OffHeapMessageCacheDelegate delegate = new OffHeapMessageCacheDelegate();
+		for (long id = 100; id < 1100; id++) {
+			delegate.put(message(id, "message " + id, author));
+			if (id % 4 != 0) delegate.remove(id - 1);
+		}
+
+		assertEquals(250, delegate.size());
+		for (long id = 100; id < 1100; id++) {
+			IMessage message = delegate.retrieve(id).orElse(null);
+			if (id % 4 == 3) assertEquals("message " + id, message.getContent());
+			else assertNull(message);
+		}
+		assertEquals(delegate.size(), delegate.copy().values().size());
+	}
+
+	@Test
+	public void testOldestEvictedAtCapacity() {
+		OffHeapMessageCacheDelegate delegate = new OffHeapMessageCacheDelegate(8192);
+		for (long id = 100; id < 400; id++) delegate.put(message(id, "message " + id, author));
+
+		assertTrue(delegate.size() < 300);
+		long oldest = delegate.longIDs().stream().mapToLong(id -> id).min().getAsLong();
+		assertEquals(400 - delegate.size(), oldest);
+		assertEquals("message 399", delegate.retrieve(399).get().getContent());
+
+		char[] content = new char[8192];
+		Arrays.fill(content, 'a');
+		try {
+			delegate.put(message(400, new String(content), author));
+			fail();
+		} catch (DiscordException e) {
+			assertFalse(delegate.contains(400));
+			assertTrue(delegate.contains(399));
+		}
+	}
+
+	private User user(long id, String name) {
+		return new User(shard, name, id, "0001", null, new Presence(null, null, StatusType.ONLINE, ActivityType.PLAYING), false);
+	}
+
+	private Message message(long id, String content, IUser author) {
+		return new Message(shard.getClient(), id, content, author, channel, Instant.now(), null, false,
+				new ArrayList<>(), new ArrayList<>(), new ArrayList<>(), false, new ArrayList<>(), 0, IMessage.Type.DEFAULT);
+	}
+}
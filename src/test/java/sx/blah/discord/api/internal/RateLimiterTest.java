@@ -0,0 +1,165 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpVersion;
+import org.apache.http.message.BasicHttpResponse;
+import org.junit.Test;
+import sx.blah.discord.util.RequestPriority;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class RateLimiterTest {
+
+	private static HttpResponse response(int code, int limit, int remaining, long resetMillis) {
+		HttpResponse response = new BasicHttpResponse(HttpVersion.HTTP_1_1, code, null);
+		response.addHeader("X-RateLimit-Limit", String.valueOf(limit));
+		response.addHeader("X-RateLimit-Remaining", String.valueOf(remaining));
+		response.addHeader("X-RateLimit-Reset", String.valueOf((long) Math.ceil(resetMillis / 1000D)));
+		return response;
+	}
+
+	@Test
+	public void testQueuesUntilFirstResponse() throws Exception {
+		RateLimiter limiter = new RateLimiter();
+		CompletableFuture<Void> first = limiter.acquire("bucket");
+		CompletableFuture<Void> second = limiter.acquire("bucket");
+
+		assertTrue(first.isDone());
+		assertFalse(second.isDone());
+
+		limiter.update("bucket", response(200, 5, 4, System.currentTimeMillis() + 5000));
+		second.get(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testReleasesWhenBucketResets() throws Exception {
+		RateLimiter limiter = new RateLimiter();
+		limiter.acquire("bucket");
+		limiter.update("bucket", response(200, 1, 0, System.currentTimeMillis() + 1000));
+
+		CompletableFuture<Void> queued = limiter.acquire("bucket");
+		assertFalse(queued.isDone());
+		assertEquals(1, limiter.getQueuedRequestCount());
+
+		queued.get(3, TimeUnit.SECONDS);
+		assertEquals(0, limiter.getQueuedRequestCount());
+	}
+
+	@Test
+	public void testBucketsAreIndependent() throws Exception {
+		RateLimiter limiter = new RateLimiter();
+		limiter.acquire("first");
+		limiter.update("first", response(200, 1, 0, System.currentTimeMillis() + 60000));
+
+		assertFalse(limiter.acquire("first").isDone());
+		assertTrue(limiter.acquire("second").isDone());
+	}
+
+	@Test
+	public void testReleaseReturnsPermit() throws Exception {
+		RateLimiter limiter = new RateLimiter();
+		limiter.acquire("bucket");
+		CompletableFuture<Void> queued = limiter.acquire("bucket");
+
+		limiter.release("bucket");
+		queued.get(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testRouteRateLimitWaitsForRetryAfter() throws Exception {
+		RateLimiter limiter = new RateLimiter();
+		limiter.acquire("bucket");
+		limiter.onRateLimited("bucket", 500, false);
+		limiter.update("bucket", new BasicHttpResponse(HttpVersion.HTTP_1_1, 429, null));
+
+		CompletableFuture<Void> retry = limiter.acquire("bucket");
+		assertFalse(retry.isDone());
+		retry.get(2, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testAbandonedPermitIsReturned() throws Exception {
+		RateLimiter limiter = new RateLimiter();
+		limiter.acquire("bucket");
+		CompletableFuture<Void> abandoned = limiter.acquire("bucket");
+		limiter.abandon("bucket", abandoned);
+		CompletableFuture<Void> queued = limiter.acquire("bucket");
+
+		limiter.release("bucket");
+		abandoned.get(1, TimeUnit.SECONDS);
+		queued.get(1, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testErrorWithoutHeadersKeepsLimit() throws Exception {
+		RateLimiter limiter = new RateLimiter();
+		limiter.acquire("bucket");
+		CompletableFuture<Void> first = limiter.acquire("bucket");
+		CompletableFuture<Void> second = limiter.acquire("bucket");
+
+		limiter.update("bucket", new BasicHttpResponse(HttpVersion.HTTP_1_1, 502, null));
+		first.get(1, TimeUnit.SECONDS);
+		assertFalse(second.isDone());
+
+		limiter.update("bucket", new BasicHttpResponse(HttpVersion.HTTP_1_1, 200, null));
+		second.get(1, TimeUnit.SECONDS);
+		assertTrue(limiter.acquire("bucket").isDone());
+	}
+
+	@Test
+	public void testHigherPriorityIsReleasedFirst() throws Exception {
+		RateLimiter limiter = new RateLimiter();
+		limiter.acquire("bucket");
+		CompletableFuture<Void> bulk = limiter.acquire("bucket", RequestPriority.BULK);
+		CompletableFuture<Void> interactive = limiter.acquire("bucket", RequestPriority.INTERACTIVE);
+
+		limiter.update("bucket", response(200, 2, 1, System.currentTimeMillis() + 60000));
+		interactive.get(1, TimeUnit.SECONDS);
+		assertFalse(bulk.isDone());
+	}
+
+	@Test
+	public void testSweepKeepsBusyBuckets() throws Exception {
+		RateLimiter limiter = new RateLimiter();
+		limiter.acquire("idle");
+		limiter.release("idle");
+		limiter.acquire("busy");
+
+		limiter.sweep();
+		assertEquals(1, limiter.getBucketCount());
+		assertFalse(limiter.acquire("busy").isDone());
+	}
+
+	@Test
+	public void testBucketKeepsOnlyMajorParameter() {
+		assertEquals("DELETE /api/v6/channels/1234/messages/{id}",
+				RateLimiter.getBucket("DELETE", "/api/v6/channels/1234/messages/5678"));
+		assertEquals("PUT /api/v6/channels/1234/messages/{id}/reactions/{emoji}/@me",
+				RateLimiter.getBucket("PUT", "/api/v6/channels/1234/messages/5678/reactions/%F0%9F%91%8D/@me"));
+		assertEquals("PATCH /api/v6/guilds/1234/members/{id}",
+				RateLimiter.getBucket("PATCH", "/api/v6/guilds/1234/members/5678"));
+		assertEquals("POST /api/v6/webhooks/1234/{token}",
+				RateLimiter.getBucket("POST", "/api/v6/webhooks/1234/abcDEF-123"));
+		assertEquals("GET /api/v6/users/{id}", RateLimiter.getBucket("GET", "/api/v6/users/1234"));
+	}
+}
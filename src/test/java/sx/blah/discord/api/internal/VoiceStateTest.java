@@ -0,0 +1,69 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import org.junit.Before;
+import org.junit.Test;
+import sx.blah.discord.api.ClientBuilder;
+import sx.blah.discord.handle.impl.obj.Guild;
+import sx.blah.discord.handle.impl.obj.Presence;
+import sx.blah.discord.handle.impl.obj.User;
+import sx.blah.discord.handle.impl.obj.VoiceState;
+import sx.blah.discord.handle.obj.ActivityType;
+import sx.blah.discord.handle.obj.IVoiceState;
+import sx.blah.discord.handle.obj.StatusType;
+
+import static org.junit.Assert.*;
+
+public class VoiceStateTest {
+
+	private Guild guild;
+	private User user;
+
+	@Before
+	public void setUp() {
+		DiscordClientImpl client = (DiscordClientImpl) new ClientBuilder().withToken("token").build();
+		ShardImpl shard = new ShardImpl(client, "gateway", new int[] {0, 1}, null);
+		guild = new Guild(shard, "guild", 1, null, 2, 0, 0, "region", 0, 0);
+		user = new User(shard, "user", 3, "0001", null, new Presence(null, null, StatusType.ONLINE, ActivityType.PLAYING), false);
+	}
+
+	@Test
+	public void testVoiceStateChangesAreKept() {
+		assertFalse(user.getVoiceStateForGuild(guild).isSelfMuted());
+		assertTrue(user.getVoiceStates().size() == 0);
+
+		user.getOrCreateVoiceState(guild).setSelfMuted(true);
+		user.getOrCreateVoiceState(guild).setSelfDeafened(true);
+
+		IVoiceState voiceState = user.getVoiceStateForGuild(guild);
+		assertTrue(voiceState.isSelfMuted());
+		assertTrue(voiceState.isSelfDeafened());
+		assertSame(voiceState, user.voiceStates.get(guild.getLongID()));
+	}
+
+	@Test
+	public void testDeprecatedVoiceStatesWriteThrough() {
+		user.voiceStates.put(new VoiceState(guild, null, user, "session", true, false, false, false, false));
+		assertTrue(user.getVoiceStateForGuild(guild).isDeafened());
+
+		user.voiceStates.remove(guild.getLongID());
+		assertFalse(user.getVoiceStateForGuild(guild).isDeafened());
+		assertEquals(0, user.getVoiceStateCache().size());
+	}
+}
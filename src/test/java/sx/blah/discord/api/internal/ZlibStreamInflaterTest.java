@@ -0,0 +1,72 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.api.internal;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+import static org.junit.Assert.*;
+
+public class ZlibStreamInflaterTest {
+
+	private static byte[] flush(Deflater deflater, String payload) {
+		deflater.setInput(payload.getBytes(StandardCharsets.UTF_8));
+		byte[] buffer = new byte[payload.length() + 64];
+		int length = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+		return Arrays.copyOf(buffer, length);
+	}
+
+	private static String inflate(ZlibStreamInflater inflater, byte[] data) throws Exception {
+		int length = inflater.inflate(data, 0, data.length);
+		return length == -1 ? null : new String(inflater.getOutput(), 0, length, StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void testInflatesConsecutivePayloads() throws Exception {
+		Deflater deflater = new Deflater();
+		ZlibStreamInflater inflater = new ZlibStreamInflater();
+
+		assertEquals("{\"op\":10}", inflate(inflater, flush(deflater, "{\"op\":10}")));
+		assertEquals("{\"op\":11}", inflate(inflater, flush(deflater, "{\"op\":11}")));
+	}
+
+	@Test
+	public void testWaitsForSplitPayload() throws Exception {
+		Deflater deflater = new Deflater();
+		ZlibStreamInflater inflater = new ZlibStreamInflater();
+
+		byte[] data = flush(deflater, "{\"op\":0,\"t\":\"GUILD_CREATE\"}");
+		int split = data.length / 2;
+		assertNull(inflate(inflater, Arrays.copyOfRange(data, 0, split)));
+		assertEquals("{\"op\":0,\"t\":\"GUILD_CREATE\"}", inflate(inflater, Arrays.copyOfRange(data, split, data.length)));
+	}
+
+	@Test
+	public void testGrowsBufferForLargePayloads() throws Exception {
+		Deflater deflater = new Deflater();
+		ZlibStreamInflater inflater = new ZlibStreamInflater();
+
+		char[] chars = new char[100_000];
+		Arrays.fill(chars, 'a');
+		String payload = new String(chars);
+		assertEquals(payload, inflate(inflater, flush(deflater, payload)));
+	}
+}
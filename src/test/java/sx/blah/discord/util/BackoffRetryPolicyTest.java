@@ -0,0 +1,60 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BackoffRetryPolicyTest {
+
+	@Test
+	public void testDelaysStayWithinBounds() {
+		BackoffRetryPolicy policy = new BackoffRetryPolicy(100, 10, 1000, Long.MAX_VALUE, 0, 0);
+		long delay = 0;
+		for (int attempt = 1; attempt <= 100; attempt++) {
+			long next = policy.getRetryDelay("route", attempt, 0, delay);
+			assertTrue(next >= 10 && next <= 1000);
+			assertTrue(next <= Math.max(10, delay * 3));
+			delay = next;
+		}
+	}
+
+	@Test
+	public void testGivesUp() {
+		BackoffRetryPolicy policy = new BackoffRetryPolicy(2, 10, 1000, 5000, 0, 0);
+		assertTrue(policy.getRetryDelay("route", 2, 0, 0) >= 0);
+		assertEquals(-1, policy.getRetryDelay("route", 3, 0, 0));
+		assertEquals(-1, policy.getRetryDelay("route", 1, 5000, 0));
+	}
+
+	@Test
+	public void testCircuitOpensAfterConsecutiveFailures() {
+		BackoffRetryPolicy policy = new BackoffRetryPolicy(5, 10, 1000, 5000, 3, 60000);
+		policy.onFailure("route");
+		policy.onFailure("route");
+		policy.onSuccess("route");
+		policy.onFailure("route");
+		policy.onFailure("route");
+		assertTrue(policy.allowRequest("route"));
+
+		policy.onFailure("route");
+		assertFalse(policy.allowRequest("route"));
+		assertTrue(policy.allowRequest("other"));
+	}
+}
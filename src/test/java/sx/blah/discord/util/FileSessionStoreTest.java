@@ -0,0 +1,46 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.util;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import static org.junit.Assert.*;
+
+public class FileSessionStoreTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testSaveLoadAndClear() throws Exception {
+		FileSessionStore store = new FileSessionStore(folder.getRoot().toPath().resolve("sessions"));
+		assertNull(store.load(0, 2));
+
+		store.save(0, 2, new ISessionStore.StoredSession("abc", 42));
+		store.save(0, 2, new ISessionStore.StoredSession("abc", 43));
+		ISessionStore.StoredSession session = store.load(0, 2);
+		assertEquals("abc", session.getSessionId());
+		assertEquals(43, session.getSequence());
+		assertNull(store.load(1, 2));
+		assertNull(store.load(0, 3));
+
+		store.clear(0, 2);
+		assertNull(store.load(0, 2));
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class RequestBufferTest {
+
+	@Test
+	public void testDeferredRequestsDoNotBlockThreads() throws Exception {
+		List<CompletableFuture<Void>> permits = new ArrayList<>();
+		List<RequestBuffer.RequestFuture<Boolean>> deferred = new ArrayList<>();
+		AtomicInteger abandoned = new AtomicInteger();
+		for (int i = 0; i < 50; i++) {
+			CompletableFuture<Void> permit = new CompletableFuture<>();
+			permits.add(permit);
+			deferred.add(RequestBuffer.request(() -> {
+				if (RequestBuffer.claimPermit("bucket") != null) return true;
+				RequestBuffer.deferUntilPermitted("bucket", permit, abandoned::incrementAndGet);
+				return false;
+			}));
+		}
+
+		assertTrue(RequestBuffer.request(() -> true).get(5, TimeUnit.SECONDS));
+
+		permits.forEach(permit -> permit.complete(null));
+		for (RequestBuffer.RequestFuture<Boolean> future : deferred) assertTrue(future.get(5, TimeUnit.SECONDS));
+		assertEquals(0, abandoned.get());
+	}
+
+	@Test
+	public void testUnusedPermitIsAbandoned() throws Exception {
+		CompletableFuture<Void> permit = new CompletableFuture<>();
+		AtomicInteger attempts = new AtomicInteger();
+		AtomicInteger abandoned = new AtomicInteger();
+		RequestBuffer.RequestFuture<Integer> future = RequestBuffer.request(() -> {
+			if (attempts.incrementAndGet() == 1) RequestBuffer.deferUntilPermitted("bucket", permit, abandoned::incrementAndGet);
+			return attempts.get();
+		});
+
+		permit.complete(null);
+		assertEquals(2, (int) future.get(5, TimeUnit.SECONDS));
+		assertEquals(1, abandoned.get());
+	}
+
+	@Test
+	public void testNotDeferredOutsideBuffer() {
+		RequestBuffer.deferUntilPermitted("bucket", new CompletableFuture<>(), () -> fail());
+		assertNull(RequestBuffer.claimPermit("bucket"));
+	}
+}
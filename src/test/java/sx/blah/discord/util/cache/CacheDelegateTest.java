@@ -0,0 +1,106 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package sx.blah.discord.util.cache;
+
+import org.junit.Test;
+import sx.blah.discord.handle.obj.IChannel;
+import sx.blah.discord.handle.obj.IIDLinkedObject;
+import sx.blah.discord.handle.obj.IPrivateChannel;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class CacheDelegateTest {
+
+	private static void testDelegate(ICacheDelegate<IIDLinkedObject> delegate) {
+		IIDLinkedObject one = () -> 1;
+		IIDLinkedObject two = () -> 2;
+
+		assertFalse(delegate.put(one).isPresent());
+		assertFalse(delegate.put(two).isPresent());
+		assertSame(one, delegate.retrieve(1).get());
+		assertTrue(delegate.contains("2"));
+		assertEquals(2, delegate.size());
+		assertEquals(2, delegate.longIDs().size());
+		assertSame(two, delegate.findResult((id, obj) -> id == 2 ? obj : null));
+
+		assertSame(one, delegate.remove(1).get());
+		assertFalse(delegate.retrieve(1).isPresent());
+		assertEquals(1, delegate.copy().size());
+		assertEquals(1, delegate.clear().size());
+		assertEquals(0, delegate.size());
+	}
+
+	@Test
+	public void testMapDelegate() {
+		testDelegate(new Cache.MapCacheDelegate<>());
+	}
+
+	@Test
+	public void testConcurrentDelegate() {
+		testDelegate(new Cache.ConcurrentCacheDelegate<>());
+	}
+
+	@Test
+	public void testConcurrentDelegateReadsDuringWrites() throws Exception {
+		Cache.ConcurrentCacheDelegate<IIDLinkedObject> delegate = new Cache.ConcurrentCacheDelegate<>();
+		IIDLinkedObject stable = () -> -1;
+		delegate.put(stable);
+
+		boolean failed = false;
+		Thread writer = new Thread(() -> {
+			for (long id = 0; id < 100_000; id++) {
+				long key = id;
+				delegate.put(() -> key);
+				if (id % 2 == 0) delegate.remove(id);
+			}
+		});
+		writer.start();
+		while (writer.isAlive()) {
+			if (delegate.retrieve(-1).orElse(null) != stable || !delegate.contains(-1)) failed = true;
+		}
+		writer.join();
+
+		assertFalse(failed);
+		assertEquals(50_001, delegate.size());
+	}
+
+	@Test
+	public void testPrivateChannelsAreNotCopiedOnWrite() {
+		assertTrue(Cache.CONCURRENT_PROVIDER.provide(IChannel.class) instanceof Cache.SnapshotCacheDelegate);
+		assertTrue(Cache.CONCURRENT_PROVIDER.provide(IPrivateChannel.class) instanceof Cache.ConcurrentCacheDelegate);
+	}
+
+	@Test
+	public void testSnapshotDelegate() {
+		testDelegate(new Cache.SnapshotCacheDelegate<>());
+	}
+
+	@Test
+	public void testSnapshotIterationIsUnaffectedByWrites() {
+		Cache.SnapshotCacheDelegate<IIDLinkedObject> delegate = new Cache.SnapshotCacheDelegate<>();
+		delegate.put(() -> 1);
+
+		Iterator<IIDLinkedObject> iterator = delegate.iterator();
+		delegate.put(() -> 2);
+		delegate.remove(1);
+
+		assertEquals(1, iterator.next().getLongID());
+		assertFalse(iterator.hasNext());
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ *     This file is part of Discord4J.
+ *
+ *     Discord4J is free software: you can redistribute it and/or modify
+ *     it under the terms of the GNU Lesser General Public License as published by
+ *     the Free Software Foundation, either version 3 of the License, or
+ *     (at your option) any later version.
+ *
+ *     Discord4J is distributed in the hope that it will be useful,
+ *     but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *     MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *     GNU Lesser General Public License for more details.
+ *
+ *     You should have received a copy of the GNU Lesser General Public License
+ *     along with Discord4J.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package sx.blah.discord.util.cache;
+
+import org.junit.Test;
+import sx.blah.discord.handle.obj.IIDLinkedObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class SnowflakeIndexTest {
+
+	private interface IOther extends IIDLinkedObject {}
+
+	@Test
+	public void testIndexFollowsCache() {
+		SnowflakeIndex index = new SnowflakeIndex();
+		Cache<IIDLinkedObject> cache = new Cache<>(new Cache.ConcurrentCacheDelegate<>(), IIDLinkedObject.class, index);
+		IIDLinkedObject one = () -> 1;
+		IIDLinkedObject two = () -> 2;
+
+		cache.putAll(Arrays.asList(one, two));
+		assertSame(one, index.get(1, IIDLinkedObject.class));
+		assertNull(index.get(1, IOther.class));
+
+		cache.remove(1L);
+		assertNull(index.get(1, IIDLinkedObject.class));
+		assertSame(two, index.get(2, IIDLinkedObject.class));
+
+		cache.clear();
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	public void testPutAllCountsReplacedOnce() {
+		SnowflakeIndex index = new SnowflakeIndex();
+		Cache<IIDLinkedObject> cache = new Cache<>(new Cache.SnapshotCacheDelegate<>(), IIDLinkedObject.class, index);
+		IIDLinkedObject one = () -> 1;
+		IIDLinkedObject newOne = () -> 1;
+
+		cache.putAll(Arrays.asList(one, () -> 2));
+		cache.putAll(Arrays.asList(newOne, newOne));
+		assertSame(newOne, index.get(1, IIDLinkedObject.class));
+
+		cache.remove(1L);
+		assertNull(index.get(1, IIDLinkedObject.class));
+	}
+
+	@Test
+	public void testIdSharedByCaches() {
+		SnowflakeIndex index = new SnowflakeIndex();
+		Cache<IOther> first = new Cache<>(new Cache.MapCacheDelegate<>(), IOther.class, index);
+		Cache<IOther> second = new Cache<>(new Cache.MapCacheDelegate<>(), IOther.class, index);
+		IOther user = () -> 1;
+
+		first.put(user);
+		second.put(user);
+		first.put(user);
+		first.remove(user);
+		assertSame(user, index.get(1, IOther.class));
+		assertEquals(1, index.values(IOther.class).size());
+
+		second.unindex();
+		assertNull(index.get(1, IOther.class));
+		second.remove(user);
+		assertEquals(0, index.size());
+	}
+
+	@Test
+	public void testInternCreatesOneObject() throws Exception {
+		SnowflakeIndex index = new SnowflakeIndex();
+		AtomicInteger created = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		List<Future<IOther>> interned = new ArrayList<>();
+		for (int i = 0; i < 16; i++) {
+			interned.add(executor.submit(() -> index.intern(1, IOther.class, id -> {
+				created.incrementAndGet();
+				return () -> id;
+			})));
+		}
+		IOther user = interned.get(0).get(1, TimeUnit.SECONDS);
+		for (Future<IOther> future : interned) {
+			assertSame(user, future.get(1, TimeUnit.SECONDS));
+		}
+		executor.shutdown();
+		assertEquals(1, created.get());
+
+		Cache<IOther> cache = new Cache<>(new Cache.MapCacheDelegate<>(), IOther.class, index);
+		cache.put(user);
+		cache.remove(user);
+		assertEquals(0, index.size());
+
+		IOther ignored = index.intern(2, IOther.class, id -> () -> id);
+		new Cache<>(Cache.IGNORING_PROVIDER.provide(IOther.class), IOther.class, index).put(ignored);
+		assertEquals(0, index.size());
+	}
+}